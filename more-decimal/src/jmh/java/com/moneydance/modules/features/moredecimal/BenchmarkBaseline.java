@@ -0,0 +1,160 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.moneydance.modules.features.moredecimal;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compare JMH results in CSV form with a baseline and exit with a non-zero
+ * status when any benchmark regressed by more than the tolerance. Throughput
+ * scores regress when they drop; time and allocation scores regress when they
+ * rise. When there is no baseline yet, the results become the baseline.
+ */
+public class BenchmarkBaseline {
+	private static final String ALLOC_NORM = "gc.alloc.rate.norm";
+
+	/**
+	 * No instances needed.
+	 */
+	private BenchmarkBaseline() {
+	} // end constructor
+
+	/**
+	 * @param args results CSV file, baseline CSV file, tolerance fraction
+	 */
+	public static void main(String[] args) throws IOException {
+		Path results = Paths.get(args[0]);
+		Path baseline = Paths.get(args[1]);
+		double tolerance = Double.parseDouble(args[2]);
+
+		if (!Files.exists(baseline)) {
+			Files.copy(results, baseline, StandardCopyOption.REPLACE_EXISTING);
+			System.out.format("No baseline found; recorded %s as the baseline.%n", results);
+
+			return;
+		}
+		Map<String, Score> current = readScores(results);
+		Map<String, Score> base = readScores(baseline);
+		int regressions = 0;
+
+		for (Map.Entry<String, Score> entry : current.entrySet()) {
+			Score was = base.get(entry.getKey());
+
+			if (was != null) {
+				Score now = entry.getValue();
+				double change = was.value == 0 ? Math.signum(now.value)
+					: (now.value - was.value) / was.value;
+				boolean regressed = now.higherIsBetter ? change < -tolerance : change > tolerance;
+				System.out.format("%-90s %14.3f -> %14.3f %s (%+.1f%%)%s%n", entry.getKey(),
+					was.value, now.value, now.unit, change * 100, regressed ? "  REGRESSED" : "");
+
+				if (regressed) {
+					++regressions;
+				}
+			}
+		} // end for
+
+		if (regressions > 0) {
+			System.out.format("%d benchmark score%s regressed past the %.0f%% tolerance.%n",
+				regressions, regressions == 1 ? "" : "s", tolerance * 100);
+			System.exit(1);
+		}
+
+	} // end main(String[])
+
+	/**
+	 * @param csvFile JMH results in CSV form
+	 * @return Scores keyed by benchmark name and parameter values
+	 */
+	private static Map<String, Score> readScores(Path csvFile) throws IOException {
+		List<String> lines = Files.readAllLines(csvFile, StandardCharsets.UTF_8);
+		List<String> header = splitCsv(lines.get(0));
+		int nameCol = header.indexOf("Benchmark");
+		int modeCol = header.indexOf("Mode");
+		int scoreCol = header.indexOf("Score");
+		int unitCol = header.indexOf("Unit");
+		Map<String, Score> scores = new LinkedHashMap<>();
+
+		for (String line : lines.subList(1, lines.size())) {
+			List<String> fields = splitCsv(line);
+
+			if (fields.size() == header.size()) {
+				StringBuilder key = new StringBuilder(fields.get(nameCol));
+
+				for (int col = unitCol + 1; col < header.size(); ++col) {
+					key.append(' ').append(header.get(col)).append('=').append(fields.get(col));
+				}
+				String name = fields.get(nameCol);
+				// primary throughput scores are better when higher; all others when lower
+				boolean higherIsBetter = !name.contains(":")
+					&& "thrpt".equals(fields.get(modeCol));
+
+				if (!name.contains(":") || name.endsWith(ALLOC_NORM)) {
+					scores.put(key.toString(), new Score(Double.parseDouble(fields.get(scoreCol)),
+						fields.get(unitCol), higherIsBetter));
+				}
+			}
+		} // end for
+
+		return scores;
+	} // end readScores(Path)
+
+	/**
+	 * @param line A line of comma separated values, some of them quoted
+	 * @return The values
+	 */
+	private static List<String> splitCsv(String line) {
+		List<String> fields = new ArrayList<>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+
+		for (char c : line.toCharArray()) {
+			if (c == '"') {
+				quoted = !quoted;
+			} else if (c == ',' && !quoted) {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else {
+				field.append(c);
+			}
+		} // end for
+		fields.add(field.toString());
+
+		return fields;
+	} // end splitCsv(String)
+
+	/**
+	 * Class to hold one benchmark score.
+	 */
+	private static class Score {
+		private double value;
+		private String unit;
+		private boolean higherIsBetter;
+
+		/**
+		 * Sole constructor.
+		 *
+		 * @param value
+		 * @param unit
+		 * @param higherIsBetter
+		 */
+		public Score(double value, String unit, boolean higherIsBetter) {
+			this.value = value;
+			this.unit = unit;
+			this.higherIsBetter = higherIsBetter;
+
+		} // end (double, String, boolean) constructor
+
+	} // end class Score
+
+} // end class BenchmarkBaseline
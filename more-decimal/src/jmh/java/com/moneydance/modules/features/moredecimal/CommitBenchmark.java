@@ -0,0 +1,110 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.moneydance.modules.features.moredecimal;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of only part of the commit path: grouping the staged changes by
+ * parent transaction and counting the parent groups, as commit does before
+ * changing anything. The rest of commit, checking staged accounts for changes,
+ * writing the journal and each parent's edit and sync, needs a live account
+ * book and isn't covered; time it with BatchMain --metrics instead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CommitBenchmark {
+	@Param({ "10000", "100000", "1000000" })
+	public int splits;
+
+	@Param({ "20" })
+	public int accounts;
+
+	@Param({ "2" })
+	public int splitsPerParent;
+
+	private SyntheticBook book;
+	private Object[] parents;
+	private StagedChanges changes;
+
+	@Setup
+	public void generateBook() {
+		this.book = new SyntheticBook(this.accounts, this.splits, 1_000_000_000L,
+			this.splitsPerParent);
+		this.parents = new Object[this.book.getNumSplits()];
+		int next = 0;
+
+		for (int a = 0; a < this.book.getNumAccounts(); ++a) {
+			Object[] acntParents = this.book.getParents(a);
+			System.arraycopy(acntParents, 0, this.parents, next, acntParents.length);
+			next += acntParents.length;
+		} // end for
+
+	} // end generateBook()
+
+	@Setup(Level.Invocation)
+	public void stageChanges() {
+		this.changes = new StagedChanges();
+		int next = 0;
+
+		for (int a = 0; a < this.book.getNumAccounts(); ++a) {
+			// stage each split's book index in place of its new shares to find its parent
+			for (int i = 0; i < this.book.getDates(a).length; ++i) {
+				this.changes.add(null, next++);
+			}
+			this.changes.endAccount();
+		} // end for
+
+	} // end stageChanges()
+
+	/**
+	 * @param index Index of a staged change
+	 * @return The parent transaction key of the staged change
+	 */
+	private Object parentOf(int index) {
+
+		return this.parents[(int) this.changes.getNewShares(index)];
+	} // end parentOf(int)
+
+	/**
+	 * Group the staged changes by parent and count the syncs commit would make.
+	 *
+	 * @return The number of parent transaction syncs
+	 */
+	@Benchmark
+	public int planCommit() {
+		this.changes.groupBy(this::parentOf);
+		int numSyncs = 0;
+		int i = 0;
+
+		while (i < this.changes.size()) {
+			Object parent = parentOf(i);
+
+			do {
+				++i;
+			} while (i < this.changes.size() && parentOf(i) == parent);
+			++numSyncs;
+		} // end while
+
+		return numSyncs;
+	} // end planCommit()
+
+} // end class CommitBenchmark
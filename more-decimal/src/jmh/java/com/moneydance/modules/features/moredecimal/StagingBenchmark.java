@@ -0,0 +1,154 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.moneydance.modules.features.moredecimal;
+
+import static com.moneydance.modules.features.moredecimal.Diagnostics.Severity.INFO;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of the staging path: the running balance check alone, and the
+ * verify and stage step DecimalChanger runs for each security account, both
+ * split by split and over copied columns, run over a synthetic book. The step
+ * is the same AccountStager code, starting from transactions already copied to
+ * arrays, with each account's summary already cached; with summaries off,
+ * every split is checked. Loading transactions from Moneydance isn't covered.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StagingBenchmark {
+	@Param({ "10000", "100000", "1000000" })
+	public int splits;
+
+	@Param({ "20" })
+	public int accounts;
+
+	@Param({ "1000000000" })
+	public long maxShares;
+
+	@Param({ "2" })
+	public int rightMovePlaces;
+
+	@Param({ "true", "false" })
+	public boolean summarized;
+
+	private SyntheticBook book;
+	private int[][] parentKeys;
+	private AccountSummary[] summaries;
+	private SplitColumns columns;
+
+	private static final BooleanSupplier NEVER_STOP = () -> false;
+	private static final int OLD_DECIMAL_PLACES = 4;
+
+	@Setup
+	public void generateBook() {
+		this.book = new SyntheticBook(this.accounts, this.splits, this.maxShares, 1);
+		this.parentKeys = new int[this.book.getNumAccounts()][];
+		this.summaries = new AccountSummary[this.book.getNumAccounts()];
+
+		for (int a = 0; a < this.book.getNumAccounts(); ++a) {
+			int[] dates = this.book.getDates(a);
+			Object[] parents = this.book.getParents(a);
+			this.parentKeys[a] = new int[parents.length];
+
+			for (int i = 0; i < parents.length; ++i) {
+				this.parentKeys[a][i] = parents[i].hashCode();
+			}
+			this.summaries[a] = this.summarized
+				? new AccountSummary(dates, this.book.getValues(a), null, dates.length, 0) : null;
+		} // end for
+		this.columns = new SplitColumns();
+
+	} // end generateBook()
+
+	/**
+	 * Build the running balances for each account and check every split's balance.
+	 */
+	@Benchmark
+	public void checkBalances(Blackhole blackhole) {
+		for (int a = 0; a < this.book.getNumAccounts(); ++a) {
+			int[] dates = this.book.getDates(a);
+			RunningBalanceValidator balances = new RunningBalanceValidator(dates,
+				this.book.getValues(a), dates.length, 0);
+
+			for (int date : dates) {
+				blackhole.consume(balances.checkBalance(date, this.rightMovePlaces));
+			}
+		} // end for
+
+	} // end checkBalances(Blackhole)
+
+	/**
+	 * Verify and stage every split in every account, as staging does.
+	 *
+	 * @param columns Columns to check over, or null to check split by split
+	 * @return The staged changes
+	 */
+	private StagedChanges stageBook(SplitColumns columns) {
+		StagedChanges changes = new StagedChanges();
+
+		for (int a = 0; a < this.book.getNumAccounts(); ++a) {
+			int[] dates = this.book.getDates(a);
+			AccountStager stager = new AccountStager(a, dates, this.book.getValues(a),
+				this.parentKeys[a], null, null, dates.length, 0);
+			StagedChanges acntChanges = new StagedChanges();
+			Diagnostics diagnostics = new Diagnostics(INFO);
+
+			if (stager.stage(this.summaries[a], this.rightMovePlaces,
+					OLD_DECIMAL_PLACES + this.rightMovePlaces, columns, acntChanges, diagnostics, NEVER_STOP)) {
+				// Verified and staged %d relevant transactions in %s account.
+				diagnostics.record(INFO, "MDC04", stager.getTxnCount(), a);
+				changes.addAccount(acntChanges);
+			}
+
+			if (columns != null) {
+				columns.release();
+			}
+		} // end for
+
+		return changes;
+	} // end stageBook(SplitColumns)
+
+	/**
+	 * Verify and stage every split in every account, split by split.
+	 *
+	 * @return The staged changes
+	 */
+	@Benchmark
+	public StagedChanges stageBook() {
+
+		return stageBook(null);
+	} // end stageBook()
+
+	/**
+	 * Verify every account over copied columns, then stage every split, as
+	 * columnar staging does.
+	 *
+	 * @return The staged changes
+	 */
+	@Benchmark
+	public StagedChanges stageBookColumnar() {
+
+		return stageBook(this.columns);
+	} // end stageBookColumnar()
+
+} // end class StagingBenchmark
@@ -0,0 +1,123 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.moneydance.modules.features.moredecimal;
+
+import java.util.Random;
+
+/**
+ * In-memory stand-in for the parts of a Moneydance account book the decimal
+ * changer reads: for each security account, the date and share value of every
+ * split, plus a parent transaction key for each split. Generated with a fixed
+ * seed so every run sees the same book.
+ */
+public class SyntheticBook {
+	private int[][] dates;
+	private long[][] values;
+	private Object[][] parents;
+	private int numSplits = 0;
+
+	private static final int FIRST_DATE = 19900101;
+	private static final long SEED = 20201018L;
+
+	/**
+	 * Sole constructor.
+	 *
+	 * @param numAccounts Number of security accounts
+	 * @param totalSplits Number of splits spread across all the accounts
+	 * @param maxShares Largest absolute share value of a split
+	 * @param splitsPerParent Number of splits sharing each parent transaction
+	 */
+	public SyntheticBook(int numAccounts, int totalSplits, long maxShares, int splitsPerParent) {
+		Random random = new Random(SEED);
+		this.dates = new int[numAccounts][];
+		this.values = new long[numAccounts][];
+		this.parents = new Object[numAccounts][];
+		Object parent = null;
+
+		for (int a = 0; a < numAccounts; ++a) {
+			int acntSplits = totalSplits / numAccounts + (a < totalSplits % numAccounts ? 1 : 0);
+			int[] acntDates = new int[acntSplits];
+			long[] acntValues = new long[acntSplits];
+			Object[] acntParents = new Object[acntSplits];
+			int date = FIRST_DATE;
+
+			for (int i = 0; i < acntSplits; ++i) {
+				// several splits often share a date, as with reinvested dividends
+				if (random.nextInt(4) == 0) {
+					date = nextDate(date, random);
+				}
+				acntDates[i] = date;
+				acntValues[i] = (random.nextLong() % maxShares);
+
+				if (this.numSplits++ % splitsPerParent == 0) {
+					parent = new Object();
+				}
+				acntParents[i] = parent;
+			} // end for
+			this.dates[a] = acntDates;
+			this.values[a] = acntValues;
+			this.parents[a] = acntParents;
+		} // end for
+
+	} // end (int, int, long, int) constructor
+
+	/**
+	 * @param date A date as an integer (yyyymmdd)
+	 * @param random
+	 * @return A later date as an integer, staying within valid days of the month
+	 */
+	private static int nextDate(int date, Random random) {
+		int day = date % 100 + 1 + random.nextInt(3);
+
+		if (day <= 28)
+			return date - date % 100 + day;
+		int month = date / 100 % 100 + 1;
+
+		return month <= 12 ? (date / 10000 * 100 + month) * 100 + 1 : (date / 10000 + 1) * 10000 + 101;
+	} // end nextDate(int, Random)
+
+	/**
+	 * @return Number of security accounts
+	 */
+	public int getNumAccounts() {
+
+		return this.dates.length;
+	} // end getNumAccounts()
+
+	/**
+	 * @return Total number of splits
+	 */
+	public int getNumSplits() {
+
+		return this.numSplits;
+	} // end getNumSplits()
+
+	/**
+	 * @param acntIndex
+	 * @return The date of each split in the account
+	 */
+	public int[] getDates(int acntIndex) {
+
+		return this.dates[acntIndex];
+	} // end getDates(int)
+
+	/**
+	 * @param acntIndex
+	 * @return The share value of each split in the account
+	 */
+	public long[] getValues(int acntIndex) {
+
+		return this.values[acntIndex];
+	} // end getValues(int)
+
+	/**
+	 * @param acntIndex
+	 * @return The parent transaction key of each split in the account
+	 */
+	public Object[] getParents(int acntIndex) {
+
+		return this.parents[acntIndex];
+	} // end getParents(int)
+
+} // end class SyntheticBook
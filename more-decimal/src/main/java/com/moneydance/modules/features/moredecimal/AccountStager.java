@@ -0,0 +1,222 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.moneydance.modules.features.moredecimal;
+
+import static com.moneydance.modules.features.moredecimal.Diagnostics.Severity.ERROR;
+import static com.moneydance.modules.features.moredecimal.Diagnostics.Severity.WARNING;
+import static com.moneydance.modules.features.moredecimal.FixedPointScaler.RESCALE_OK;
+import static java.time.format.FormatStyle.MEDIUM;
+
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import com.infinitekind.moneydance.model.AbstractTxn;
+import com.infinitekind.moneydance.model.Account;
+import com.infinitekind.moneydance.model.SplitTxn;
+import com.leastlogic.moneydance.util.MdUtil;
+
+/**
+ * The verify and stage step for one security account, over its transactions
+ * copied to primitive arrays. Staging runs this for each account, and the
+ * staging benchmarks run it over synthetic accounts, so both time the same
+ * summary shortcut, split checks, fingerprint and diagnostics.
+ */
+class AccountStager {
+	private Object account;
+	private int[] dates;
+	private long[] values;
+	private int[] parentKeys;
+	private boolean[] isSplit;
+	private AbstractTxn[] txns;
+	private int numTxns;
+	private long startBalance;
+	private long fingerprint = 0;
+	private int txnCount = 0;
+	private boolean aborted = false;
+	private long balanceNanos = 0;
+
+	private static final int STOP_CHECK_MASK = 0x3FF; // check for stop every 1024 transactions
+	private static final DateTimeFormatter dateFmt = DateTimeFormatter.ofLocalizedDate(MEDIUM);
+
+	/**
+	 * Sole constructor.
+	 *
+	 * @param account The account the transactions belong to, as shown in diagnostics
+	 * @param txnDates The date of each transaction
+	 * @param txnValues The share value of each transaction
+	 * @param parentKeys The key of each split's parent transaction
+	 * @param txnIsSplit Whether each transaction is a split, or null when all are
+	 * @param txns The transactions themselves, or null when there are none to stage
+	 * @param numTxns The number of transactions in the arrays
+	 * @param startBalance The share balance before any transactions
+	 */
+	AccountStager(Object account, int[] txnDates, long[] txnValues, int[] parentKeys,
+			boolean[] txnIsSplit, AbstractTxn[] txns, int numTxns, long startBalance) {
+		this.account = account;
+		this.dates = txnDates;
+		this.values = txnValues;
+		this.parentKeys = parentKeys;
+		this.isSplit = txnIsSplit;
+		this.txns = txns;
+		this.numTxns = numTxns;
+		this.startBalance = startBalance;
+
+	} // end (Object, int[], long[], int[], boolean[], AbstractTxn[], int, long) constructor
+
+	/**
+	 * @param securityAccount The account the transactions belong to
+	 * @param txnLst All the transactions in that account
+	 * @return A stager over the transactions, copied in a single pass
+	 */
+	static AccountStager copy(Account securityAccount, List<AbstractTxn> txnLst) {
+		int numTxns = txnLst.size();
+		int[] dates = new int[numTxns];
+		long[] values = new long[numTxns];
+		int[] parentKeys = new int[numTxns];
+		boolean[] isSplit = new boolean[numTxns];
+		AbstractTxn[] txns = new AbstractTxn[numTxns];
+		int i = 0;
+
+		for (AbstractTxn txn : txnLst) {
+			dates[i] = txn.getDateInt();
+			values[i] = txn.getValue();
+
+			if (txn instanceof SplitTxn) {
+				isSplit[i] = true;
+				parentKeys[i] = StagedAccount.parentKey((SplitTxn) txn);
+			}
+			txns[i++] = txn;
+		} // end for
+
+		return new AccountStager(securityAccount, dates, values, parentKeys, isSplit, txns,
+			i, securityAccount.getStartBalance());
+	} // end copy(Account, List<AbstractTxn>)
+
+	/**
+	 * Verify each split's new shares and day-end balance fit, in order, and stage
+	 * the new shares of every split when all do. Only the checks the account
+	 * summary can't rule out are made, over columns when given.
+	 *
+	 * @param summary A summary of the account, or null to check every split
+	 * @param rightMovePlaces Number of places to move the decimal point right
+	 *                        (negative to move left)
+	 * @param newDecimalPlaces The number of decimal places after the change
+	 * @param columns Columns to check over, or null to check split by split
+	 * @param acntChanges Where to stage the changes, or null to only verify
+	 * @param diagnostics Where to record what was found
+	 * @param stopCheck Checked every so often; true stops staging
+	 * @return True when every split was verified
+	 */
+	boolean stage(AccountSummary summary, int rightMovePlaces, int newDecimalPlaces,
+			SplitColumns columns, StagedChanges acntChanges, Diagnostics diagnostics,
+			BooleanSupplier stopCheck) {
+		long balanceStart = System.nanoTime();
+		boolean checkShares = summary == null || !summary.valuesFit(rightMovePlaces);
+		boolean checkBalances = summary == null || !summary.balancesFit(rightMovePlaces);
+		int unfit = -1;
+		int unfitResult = RESCALE_OK;
+		RunningBalanceValidator balances = null;
+
+		if (columns != null && (checkShares || checkBalances)) {
+			columns.load(this.dates, this.values, this.isSplit, this.numTxns);
+
+			if (checkBalances) {
+				columns.computeBalances(this.startBalance);
+			}
+			unfit = columns.findFirstUnfit(checkShares, checkBalances, rightMovePlaces);
+
+			if (unfit >= 0) {
+				unfitResult = SplitColumns.unfitResult(rightMovePlaces);
+			}
+			// every split before the first unfit one is already verified
+			checkShares = checkBalances = false;
+		} else if (checkBalances) {
+			balances = new RunningBalanceValidator(this.dates, this.values, this.numTxns,
+				this.startBalance);
+		}
+		this.balanceNanos = System.nanoTime() - balanceStart;
+		int end = unfit < 0 ? this.numTxns : unfit;
+
+		for (int i = 0; i < end; ++i) {
+			if (this.isSplit == null || this.isSplit[i]) {
+				long shares = this.values[i];
+				int rescaleResult = checkShares
+					? FixedPointScaler.checkRescale(shares, rightMovePlaces) : RESCALE_OK;
+
+				if (rescaleResult == RESCALE_OK && balances != null) {
+					rescaleResult = balances.checkBalance(this.dates[i], rightMovePlaces);
+				}
+
+				if (rescaleResult != RESCALE_OK) {
+					unfit = i;
+					unfitResult = rescaleResult;
+					break;
+				}
+				this.fingerprint = StagedAccount.addToFingerprint(this.fingerprint,
+					this.parentKeys[i], this.dates[i], shares);
+
+				if (acntChanges != null) {
+					// verified; save for commit
+					acntChanges.add(this.txns == null ? null : (SplitTxn) this.txns[i],
+						FixedPointScaler.rescale(shares, rightMovePlaces));
+				}
+
+				if ((++this.txnCount & STOP_CHECK_MASK) == 0 && stopCheck.getAsBoolean()) {
+					this.aborted = true;
+
+					return false;
+				}
+			} else {
+				// WARNING: Found unexpected transaction in %s: %s.
+				diagnostics.record(WARNING, "MDC03", this.account,
+					this.txns == null ? Integer.valueOf(i) : this.txns[i]);
+			}
+		} // end for
+
+		if (unfit >= 0) {
+			// %s with %d decimal places for security %s on %s.
+			String txnDateStr = MdUtil.convDateIntToLocal(this.dates[unfit]).format(dateFmt);
+			diagnostics.record(ERROR, "MDC05", FixedPointScaler.describe(unfitResult),
+				newDecimalPlaces, this.account, txnDateStr);
+
+			return false;
+		}
+
+		return true;
+	} // end stage(AccountSummary, int, int, SplitColumns, StagedChanges, Diagnostics, BooleanSupplier)
+
+	/**
+	 * @return The fingerprint of the splits verified
+	 */
+	long getFingerprint() {
+
+		return this.fingerprint;
+	} // end getFingerprint()
+
+	/**
+	 * @return Number of splits verified
+	 */
+	int getTxnCount() {
+
+		return this.txnCount;
+	} // end getTxnCount()
+
+	/**
+	 * @return True when staging stopped before every split was verified
+	 */
+	boolean isAborted() {
+
+		return this.aborted;
+	} // end isAborted()
+
+	/**
+	 * @return Time taken building balances or columns, in nanoseconds
+	 */
+	long getBalanceNanos() {
+
+		return this.balanceNanos;
+	} // end getBalanceNanos()
+
+} // end class AccountStager
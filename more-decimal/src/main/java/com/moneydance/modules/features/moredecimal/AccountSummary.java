@@ -0,0 +1,191 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.moneydance.modules.features.moredecimal;
+
+import static com.moneydance.modules.features.moredecimal.FixedPointScaler.RESCALE_OK;
+import static com.moneydance.modules.features.moredecimal.FixedPointScaler.RESCALE_OVERFLOW;
+import static com.moneydance.modules.features.moredecimal.FixedPointScaler.RESCALE_ROUNDING;
+
+import java.util.List;
+
+import com.infinitekind.moneydance.model.AbstractTxn;
+import com.infinitekind.moneydance.model.Account;
+import com.infinitekind.moneydance.model.SplitTxn;
+
+/**
+ * Summary of the share values and balances in one security account: enough to
+ * tell whether every value fits a different number of decimal places without
+ * visiting the transactions again. The summary is conservative; when it says a
+ * change fits, verifying each split would agree. Like those checks, share
+ * values come from splits alone while balances count every transaction, so an
+ * unexpected transaction that isn't a split only ever adds checking.
+ */
+public class AccountSummary {
+	private int numTxns;
+	private long maxAbsValue;
+	private long maxAbsBalance;
+	private int minValueTrailingZeros;
+	private int minOtherTrailingZeros;
+	private int lastDate;
+	private long endBalance;
+
+	/**
+	 * Sole constructor.
+	 *
+	 * @param txnDates The date of each transaction
+	 * @param txnValues The share value of each transaction
+	 * @param txnIsSplit Whether each transaction is a split, or null when all are
+	 * @param numTxns The number of transactions in the arrays
+	 * @param startBalance The share balance before any transactions
+	 */
+	public AccountSummary(int[] txnDates, long[] txnValues, boolean[] txnIsSplit,
+			int numTxns, long startBalance) {
+		RunningBalanceValidator balances = new RunningBalanceValidator(txnDates, txnValues,
+			numTxns, startBalance);
+		this.numTxns = 0;
+		this.maxAbsValue = 0;
+		this.minValueTrailingZeros = FixedPointScaler.MAX_PLACES;
+		this.minOtherTrailingZeros = FixedPointScaler.trailingZeros(startBalance,
+			FixedPointScaler.MAX_PLACES);
+		this.lastDate = 0;
+		this.endBalance = startBalance;
+
+		for (int i = 0; i < numTxns; ++i) {
+			long value = txnValues[i];
+
+			if (txnIsSplit == null || txnIsSplit[i]) {
+				++this.numTxns;
+				this.maxAbsValue = Math.max(this.maxAbsValue, FixedPointScaler.magnitude(value));
+				this.minValueTrailingZeros = FixedPointScaler.trailingZeros(value,
+					this.minValueTrailingZeros);
+			} else {
+				// not checked as a share value, but still part of every later balance
+				this.minOtherTrailingZeros = FixedPointScaler.trailingZeros(value,
+					this.minOtherTrailingZeros);
+			}
+			this.lastDate = Math.max(this.lastDate, txnDates[i]);
+			this.endBalance += value;
+		} // end for
+		this.maxAbsBalance = balances.getMaxAbsBalance();
+
+	} // end (int[], long[], boolean[], int, long) constructor
+
+	/**
+	 * @param securityAccount The account the transactions belong to
+	 * @param txnLst All the transactions in that account
+	 * @return A summary of the account, from a single pass over its transactions
+	 */
+	public static AccountSummary summarize(Account securityAccount, List<AbstractTxn> txnLst) {
+		int numTxns = txnLst.size();
+		int[] dates = new int[numTxns];
+		long[] values = new long[numTxns];
+		boolean[] isSplit = new boolean[numTxns];
+		int i = 0;
+
+		for (AbstractTxn txn : txnLst) {
+			dates[i] = txn.getDateInt();
+			isSplit[i] = txn instanceof SplitTxn;
+			values[i++] = txn.getValue();
+		} // end for
+
+		return new AccountSummary(dates, values, isSplit, numTxns,
+			securityAccount.getStartBalance());
+	} // end summarize(Account, List<AbstractTxn>)
+
+	/**
+	 * Fold in a split added to the account.
+	 *
+	 * @param txnDate The new split's date
+	 * @param value The new split's share value
+	 * @return False when the summary can't be updated in place and must be rebuilt
+	 */
+	public boolean addTxn(int txnDate, long value) {
+		if (txnDate < this.lastDate)
+			return false; // would shift later balances we no longer have
+
+		++this.numTxns;
+		this.maxAbsValue = Math.max(this.maxAbsValue, FixedPointScaler.magnitude(value));
+		this.minValueTrailingZeros = FixedPointScaler.trailingZeros(value,
+			this.minValueTrailingZeros);
+		this.lastDate = txnDate;
+		this.endBalance += value;
+		this.maxAbsBalance = Math.max(this.maxAbsBalance,
+			FixedPointScaler.magnitude(this.endBalance));
+
+		return true;
+	} // end addTxn(int, long)
+
+	/**
+	 * @param rightMovePlaces Number of places to move the decimal point right
+	 *                        (negative to move left)
+	 * @return A FixedPointScaler result code for every value and balance
+	 */
+	public int checkRescale(int rightMovePlaces) {
+		if (valuesFit(rightMovePlaces) && balancesFit(rightMovePlaces))
+			return RESCALE_OK;
+
+		return rightMovePlaces > 0 ? RESCALE_OVERFLOW : RESCALE_ROUNDING;
+	} // end checkRescale(int)
+
+	/**
+	 * @param rightMovePlaces Number of places to move the decimal point right
+	 *                        (negative to move left)
+	 * @return True when every split's share value fits, so none needs checking alone
+	 */
+	public boolean valuesFit(int rightMovePlaces) {
+		if (rightMovePlaces > 0)
+			return FixedPointScaler.checkRescale(this.maxAbsValue, rightMovePlaces) == RESCALE_OK;
+
+		return this.minValueTrailingZeros >= -rightMovePlaces;
+	} // end valuesFit(int)
+
+	/**
+	 * Moving the decimal point left, each balance is the start balance plus
+	 * earlier values, so a balance can only fail when the start balance or some
+	 * value fails too.
+	 *
+	 * @param rightMovePlaces Number of places to move the decimal point right
+	 *                        (negative to move left)
+	 * @return True when no balance needs checking alone
+	 */
+	public boolean balancesFit(int rightMovePlaces) {
+		if (rightMovePlaces > 0)
+			return FixedPointScaler.checkRescale(this.maxAbsBalance, rightMovePlaces) == RESCALE_OK;
+
+		return getMinTrailingZeros() >= -rightMovePlaces;
+	} // end balancesFit(int)
+
+	/**
+	 * @return Number of splits in the account
+	 */
+	public int getNumTxns() {
+
+		return this.numTxns;
+	} // end getNumTxns()
+
+	/**
+	 * @return Largest magnitude of any split's share value
+	 */
+	public long getMaxAbsValue() {
+
+		return this.maxAbsValue;
+	} // end getMaxAbsValue()
+
+	/**
+	 * @return Largest magnitude of the start balance or any day's ending balance
+	 */
+	public long getMaxAbsBalance() {
+
+		return this.maxAbsBalance;
+	} // end getMaxAbsBalance()
+
+	/**
+	 * @return Fewest trailing decimal zeros of any value or the start balance
+	 */
+	public int getMinTrailingZeros() {
+
+		return Math.min(this.minValueTrailingZeros, this.minOtherTrailingZeros);
+	} // end getMinTrailingZeros()
+
+} // end class AccountSummary
@@ -0,0 +1,171 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.moneydance.modules.features.moredecimal;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.infinitekind.moneydance.model.AbstractTxn;
+import com.infinitekind.moneydance.model.Account;
+import com.infinitekind.moneydance.model.ParentTxn;
+import com.infinitekind.moneydance.model.SplitTxn;
+import com.infinitekind.moneydance.model.TransactionListener;
+import com.infinitekind.moneydance.model.TransactionSet;
+
+/**
+ * Cache of a summary for each security account, built on first use and kept
+ * current by listening for transaction changes. Transactions added on or
+ * after an account's latest date update its summary in place; any other change
+ * drops the summary so it is rebuilt on next use.
+ */
+public class AccountSummaryCache implements TransactionListener {
+	private TransactionSet txnSet;
+	private Map<Account, AccountSummary> summaries = new HashMap<>();
+	private long changeCount = 0;
+
+	/**
+	 * Sole constructor.
+	 *
+	 * @param txnSet The transactions of the account book to summarize
+	 */
+	public AccountSummaryCache(TransactionSet txnSet) {
+		this.txnSet = txnSet;
+		txnSet.addTransactionListener(this);
+
+	} // end (TransactionSet) constructor
+
+	/**
+	 * @param securityAccount
+	 * @return The account's summary, built now when not already cached
+	 */
+	public AccountSummary getSummary(Account securityAccount) {
+		AccountSummary summary = getCachedSummary(securityAccount);
+
+		if (summary != null)
+			return summary;
+		long changeStamp = getChangeCount();
+
+		return getSummary(securityAccount, this.txnSet.getTxnsForAccount(securityAccount),
+			changeStamp);
+	} // end getSummary(Account)
+
+	/**
+	 * @param securityAccount
+	 * @param txnLst All the transactions in the account, in case a summary is needed
+	 * @param changeStamp The change count from before the transactions were loaded
+	 * @return The account's summary, built now from the transactions when not
+	 *         already cached
+	 */
+	public AccountSummary getSummary(Account securityAccount, List<AbstractTxn> txnLst,
+			long changeStamp) {
+		AccountSummary summary = getCachedSummary(securityAccount);
+
+		if (summary == null) {
+			// summarize outside the lock so listeners aren't held up
+			summary = AccountSummary.summarize(securityAccount, txnLst);
+
+			synchronized (this) {
+				// only cache it when no transaction changed since the list was loaded
+				if (this.changeCount == changeStamp) {
+					this.summaries.put(securityAccount, summary);
+				}
+			}
+		}
+
+		return summary;
+	} // end getSummary(Account, List<AbstractTxn>, long)
+
+	/**
+	 * @return The number of transaction changes seen so far
+	 */
+	public synchronized long getChangeCount() {
+
+		return this.changeCount;
+	} // end getChangeCount()
+
+	/**
+	 * @param securityAccount
+	 * @return The account's cached summary, or null when there is none
+	 */
+	public synchronized AccountSummary getCachedSummary(Account securityAccount) {
+
+		return this.summaries.get(securityAccount);
+	} // end getCachedSummary(Account)
+
+	/**
+	 * Drop all cached summaries.
+	 */
+	public synchronized void clear() {
+		this.summaries.clear();
+
+	} // end clear()
+
+	public synchronized void transactionAdded(AbstractTxn txn) {
+		++this.changeCount;
+
+		for (SplitTxn split : splitsOf(txn)) {
+			AccountSummary summary = this.summaries.get(split.getAccount());
+
+			if (summary != null && !summary.addTxn(split.getDateInt(), split.getValue())) {
+				this.summaries.remove(split.getAccount());
+			}
+		} // end for
+
+	} // end transactionAdded(AbstractTxn)
+
+	public synchronized void transactionModified(AbstractTxn txn) {
+		dropSummaries(txn);
+
+	} // end transactionModified(AbstractTxn)
+
+	public synchronized void transactionRemoved(AbstractTxn txn) {
+		dropSummaries(txn);
+
+	} // end transactionRemoved(AbstractTxn)
+
+	/**
+	 * @param txn A changed transaction whose accounts need new summaries
+	 */
+	private void dropSummaries(AbstractTxn txn) {
+		++this.changeCount;
+
+		for (SplitTxn split : splitsOf(txn)) {
+			this.summaries.remove(split.getAccount());
+		} // end for
+
+	} // end dropSummaries(AbstractTxn)
+
+	/**
+	 * @param txn A parent or split transaction
+	 * @return The splits of a parent transaction, or just the split itself
+	 */
+	private static SplitTxn[] splitsOf(AbstractTxn txn) {
+		if (txn instanceof ParentTxn) {
+			ParentTxn pTxn = (ParentTxn) txn;
+			SplitTxn[] splits = new SplitTxn[pTxn.getSplitCount()];
+
+			for (int i = 0; i < splits.length; ++i) {
+				splits[i] = pTxn.getSplit(i);
+			}
+
+			return splits;
+		}
+
+		return txn instanceof SplitTxn ? new SplitTxn[] { (SplitTxn) txn } : new SplitTxn[0];
+	} // end splitsOf(AbstractTxn)
+
+	/**
+	 * Stop listening for transaction changes.
+	 *
+	 * @return null
+	 */
+	public AccountSummaryCache releaseResources() {
+		this.txnSet.removeTransactionListener(this);
+		clear();
+
+		return null;
+	} // end releaseResources()
+
+} // end class AccountSummaryCache
@@ -0,0 +1,407 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.moneydance.modules.features.moredecimal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import com.infinitekind.moneydance.model.AccountBook;
+import com.infinitekind.moneydance.model.AccountBookWrapper;
+import com.infinitekind.moneydance.model.CurrencyType;
+
+/**
+ * Command line entry point to change the number of decimal places of
+ * securities in a local Moneydance data file without any user interface.
+ */
+public class BatchMain {
+	private File dataFolder = null;
+	private List<String> changeSpecs = new ArrayList<>();
+	private boolean commit = false;
+	private boolean json = false;
+	private boolean failFast = false;
+	private boolean serial = false;
+	private boolean streaming = false;
+	private boolean bulk = false;
+	private boolean columnar = false;
+	private String reportFile = null;
+	private String metricsFile = null;
+	private String recovery = null;
+	private String exportFile = null;
+	private String importFile = null;
+	private int commitChunk = 0;
+	private Diagnostics.Severity minSeverity = Diagnostics.Severity.INFO;
+
+	// the data file Moneydance loads, and the file locked while a batch runs
+	private static final String TRUNK_FILE = "safe/trunk";
+	private static final String LOCK_FILE = "moredecimal-batch.lock";
+
+	private static final String USAGE = "Usage: BatchMain <data folder>"
+		+ " (<security>=<decimals>... | --import <file>) [--export <file>] [--commit]"
+		+ " [--fail-fast] [--serial] [--streaming] [--bulk] [--columnar] [--json]"
+		+ " [--report <file>] [--metrics <file>] [--chunk <syncs>] [--min-severity <level>]"
+		+ " [--resume | --rollback]%n"
+		+ "  <security> is a ticker symbol or security name.%n"
+		+ "  Without --commit, changes are only verified and staged.%n"
+		+ "  Committed changes are saved, then checked by loading the data file again.%n"
+		+ "  Only one batch run at a time may use a data folder. Moneydance itself doesn't%n"
+		+ "  lock its data file, so close it first; a running Moneydance isn't detected.%n"
+		+ "  --metrics appends stage and commit metrics to a JSON lines file.%n"
+		+ "  --resume or --rollback recovers an interrupted commit before anything else.%n"
+		+ "  --serial verifies one account at a time instead of several concurrently.%n"
+		+ "  --chunk commits at most that many syncs at a time, adapting to sync latency.%n"
+		+ "  --streaming keeps only a fingerprint of each account until commit walks it again.%n"
+		+ "  --bulk defers balance updates until the commit ends, then refreshes each account once.%n"
+		+ "  --columnar checks each account's splits over columns copied in one pass.%n"
+		+ "  --export saves the staged changes to a file; --import stages the changes saved there.%n"
+		+ "  --min-severity shows only account diagnostics at least info, warning or error.%n";
+
+	/**
+	 * Sole constructor.
+	 *
+	 * @param args Command line arguments
+	 */
+	private BatchMain(String[] args) {
+		for (int i = 0; i < args.length; ++i) {
+			String arg = args[i];
+
+			if (arg.equals("--commit")) {
+				this.commit = true;
+			} else if (arg.equals("--json")) {
+				this.json = true;
+			} else if (arg.equals("--resume") || arg.equals("--rollback")) {
+				this.recovery = arg;
+			} else if (arg.equals("--fail-fast")) {
+				this.failFast = true;
+			} else if (arg.equals("--serial")) {
+				this.serial = true;
+			} else if (arg.equals("--streaming")) {
+				this.streaming = true;
+			} else if (arg.equals("--bulk")) {
+				this.bulk = true;
+			} else if (arg.equals("--columnar")) {
+				this.columnar = true;
+			} else if (arg.equals("--report") && i + 1 < args.length) {
+				this.reportFile = args[++i];
+			} else if (arg.equals("--chunk") && i + 1 < args.length) {
+				this.commitChunk = Integer.parseInt(args[++i]);
+			} else if (arg.equals("--min-severity") && i + 1 < args.length) {
+				this.minSeverity = Diagnostics.Severity.valueOf(args[++i].toUpperCase(Locale.ROOT));
+			} else if (arg.equals("--export") && i + 1 < args.length) {
+				this.exportFile = args[++i];
+			} else if (arg.equals("--import") && i + 1 < args.length) {
+				this.importFile = args[++i];
+			} else if (arg.equals("--metrics") && i + 1 < args.length) {
+				this.metricsFile = args[++i];
+			} else if (this.dataFolder == null) {
+				this.dataFolder = new File(arg);
+			} else {
+				this.changeSpecs.add(arg);
+			}
+		} // end for
+
+	} // end (String[]) constructor
+
+	/**
+	 * @param args Command line arguments
+	 */
+	public static void main(String[] args) {
+		BatchMain batch = new BatchMain(args);
+
+		if (batch.dataFolder == null
+				|| batch.changeSpecs.isEmpty() == (batch.importFile == null)) {
+			System.err.format(USAGE);
+			System.exit(2);
+		}
+		try {
+			System.exit(batch.run());
+		} catch (Exception e) {
+			e.printStackTrace(System.err);
+			System.exit(1);
+		}
+
+	} // end main(String[])
+
+	/**
+	 * Lock the data folder, then change its data file.
+	 *
+	 * @return Process exit status
+	 */
+	private int run() throws Exception {
+		FileChannel lockChannel = lockDataFolder();
+
+		if (lockChannel == null) {
+			System.err.println("Unable to lock " + this.dataFolder
+				+ "; another batch run or program is using it.");
+
+			return 4;
+		}
+		try {
+
+			return changeDataFile();
+		} finally {
+			lockChannel.close();
+		}
+	} // end run()
+
+	/**
+	 * Keep other batch runs out of the data folder. Moneydance holds no lock on
+	 * its data file, so this can't tell when Moneydance has the folder open; the
+	 * probe of the data file only catches another program that locks it.
+	 *
+	 * @return A channel holding the lock on this run's lock file in the data
+	 *         folder, or null when another process has the data file or the lock
+	 *         file locked
+	 */
+	private FileChannel lockDataFolder() throws IOException {
+		Path folder = this.dataFolder.toPath();
+		Path trunk = folder.resolve(TRUNK_FILE);
+
+		if (Files.exists(trunk)) {
+			// just probe the data file; holding a lock on it could keep it from being saved
+			try (FileChannel channel = FileChannel.open(trunk, StandardOpenOption.READ,
+					StandardOpenOption.WRITE); FileLock lock = channel.tryLock()) {
+				if (lock == null)
+					return null;
+			} catch (IOException e) {
+
+				return null; // Windows refuses to open or lock a file another process holds
+			}
+		}
+		FileChannel channel = FileChannel.open(folder.resolve(LOCK_FILE),
+			StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		FileLock lock = null;
+		try {
+			lock = channel.tryLock();
+		} finally {
+			if (lock == null) {
+				channel.close();
+			}
+		}
+
+		return lock == null ? null : channel;
+	} // end lockDataFolder()
+
+	/**
+	 * @return The account book loaded from the data folder
+	 */
+	private AccountBook loadBook() throws Exception {
+		AccountBookWrapper wrapper = AccountBookWrapper.wrapperForFolder(this.dataFolder);
+
+		if (wrapper == null || !wrapper.loadDataModel(null))
+			throw new IOException("Unable to load Moneydance data from " + this.dataFolder);
+
+		return wrapper.getBook();
+	} // end loadBook()
+
+	/**
+	 * Load the data file, then stage and optionally commit and save the changes.
+	 *
+	 * @return Process exit status
+	 */
+	private int changeDataFile() throws Exception {
+		AccountBook book = loadBook();
+		List<RescaleTarget> targets = parseTargets(book);
+		ReportLog log = new ReportLog(Locale.getDefault());
+		SecurityAccountIndex accountIndex = new SecurityAccountIndex(book);
+		DecimalChanger changer = new DecimalChanger(log, book, accountIndex);
+		changer.setFailFast(this.failFast);
+		changer.setParallel(!this.serial);
+		changer.setDiagnosticThreshold(this.minSeverity);
+		changer.setStreaming(this.streaming);
+		changer.setBulkCommit(this.bulk);
+		changer.setColumnar(this.columnar);
+
+		if (this.metricsFile != null) {
+			changer.setMetricsHistory(Paths.get(this.metricsFile));
+		}
+		changer.setJournalFolder(this.dataFolder.toPath());
+
+		if (this.commitChunk > 0) {
+			changer.setCommitThrottle(new CommitThrottle(this.commitChunk, 0));
+		}
+		boolean changeNeeded;
+		boolean recovered = false;
+		boolean committed = false;
+		List<StagedAccount> committedAccounts = new ArrayList<>();
+		try {
+			CommitJournal interrupted = CommitJournal.findInterrupted(this.dataFolder.toPath());
+
+			if (interrupted != null) {
+				changer.writeRecoveryFound(interrupted.getNumCommitted(),
+					interrupted.getNumEntries());
+
+				if (this.recovery == null) {
+					interrupted.close();
+					System.err.println("Rerun with --resume or --rollback to recover it first.");
+
+					return 3;
+				}
+				changer.recoverCommit(interrupted, this.recovery.equals("--rollback"));
+				recovered = true;
+			}
+			if (this.importFile == null) {
+				changer.changeDecimals(targets);
+				changeNeeded = anyChangeNeeded(targets);
+			} else {
+				changer.importChanges(Paths.get(this.importFile));
+				targets.addAll(changer.getTargets());
+				// a change set always holds changes, so staging none means the import failed
+				changeNeeded = true;
+			}
+
+			if (this.exportFile != null && changer.isModified()) {
+				changer.exportChanges(Paths.get(this.exportFile));
+			}
+
+			if (this.commit && changer.isModified()) {
+				List<StagedAccount> staged = new ArrayList<>(changer.getStagedAccounts());
+				committed = changer.commitChanges();
+
+				if (committed) {
+					for (StagedAccount account : staged) {
+						committedAccounts.add(account.current(book.getTransactionSet()));
+					}
+				}
+			}
+		} finally {
+			changer.releaseResources();
+			accountIndex.releaseResources();
+		}
+		writeReport(log, targets, committed);
+
+		if (committed || recovered) {
+			book.saveTrunkFile();
+		}
+		if (committed && !reloadedWithChanges(targets, committedAccounts))
+			return 1;
+		boolean done = this.commit ? committed : changer.isModified();
+
+		// failed when some change was needed but wasn't staged, or wasn't committed as asked
+		return done || !changeNeeded ? 0 : 1;
+	} // end changeDataFile()
+
+	/**
+	 * Load the saved data file again to make sure the committed changes are there.
+	 *
+	 * @param targets The securities changed
+	 * @param committedAccounts Each account changed, as it was after the commit
+	 * @return True when the data file holds each security's new decimal places
+	 *         and each account's new shares
+	 */
+	private boolean reloadedWithChanges(List<RescaleTarget> targets,
+			List<StagedAccount> committedAccounts) throws Exception {
+		AccountBook reloaded = loadBook();
+
+		for (RescaleTarget target : targets) {
+			CurrencyType security = reloaded.getCurrencies()
+				.getCurrencyByUUID(target.getSecurity().getUUID());
+
+			if (security == null || security.getDecimalPlaces() != target.getNewDecimalPlaces()) {
+				System.err.println(target.getSecurity().getName()
+					+ " didn't reload with its new decimal places.");
+
+				return false;
+			}
+		} // end for
+
+		for (StagedAccount account : committedAccounts) {
+			if (!account.isSameIn(reloaded)) {
+				System.err.println(account.getSecurityAccount().getFullAccountName()
+					+ " didn't reload with its new shares.");
+
+				return false;
+			}
+		} // end for
+
+		return true;
+	} // end reloadedWithChanges(List<RescaleTarget>, List<StagedAccount>)
+
+	/**
+	 * @param book Moneydance account book
+	 * @return A target for each change specification
+	 */
+	private List<RescaleTarget> parseTargets(AccountBook book) {
+		List<RescaleTarget> targets = new ArrayList<>();
+
+		for (String spec : this.changeSpecs) {
+			int sep = spec.lastIndexOf('=');
+
+			if (sep <= 0)
+				throw new IllegalArgumentException("Expected <security>=<decimals>, not " + spec);
+			String securityId = spec.substring(0, sep);
+			targets.add(new RescaleTarget(findSecurity(book, securityId),
+				Integer.parseInt(spec.substring(sep + 1))));
+		} // end for
+
+		return targets;
+	} // end parseTargets(AccountBook)
+
+	/**
+	 * @param book Moneydance account book
+	 * @param securityId Ticker symbol or name of a security
+	 * @return The security
+	 */
+	private static CurrencyType findSecurity(AccountBook book, String securityId) {
+		for (CurrencyType currency : book.getCurrencies()) {
+			if (currency.getCurrencyType() == CurrencyType.Type.SECURITY
+					&& (securityId.equalsIgnoreCase(currency.getTickerSymbol())
+						|| securityId.equalsIgnoreCase(currency.getName())))
+				return currency;
+		} // end for
+
+		throw new IllegalArgumentException("No security found for " + securityId);
+	} // end findSecurity(AccountBook, String)
+
+	/**
+	 * @param targets
+	 * @return True when any target has a different number of decimal places
+	 */
+	private static boolean anyChangeNeeded(List<RescaleTarget> targets) {
+		for (RescaleTarget target : targets) {
+			if (target.getRightMovePlaces() != 0)
+				return true;
+		} // end for
+
+		return false;
+	} // end anyChangeNeeded(List<RescaleTarget>)
+
+	/**
+	 * @param log The collected output log
+	 * @param targets The securities changed
+	 * @param committed True when the changes were committed
+	 */
+	private void writeReport(ReportLog log, List<RescaleTarget> targets, boolean committed)
+			throws IOException {
+		Writer out = this.reportFile == null
+			? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+			: Files.newBufferedWriter(Paths.get(this.reportFile), StandardCharsets.UTF_8);
+		try {
+			if (this.json) {
+				log.writeJson(out, targets, committed);
+			} else {
+				log.writeText(out, targets, committed);
+			}
+		} finally {
+			if (this.reportFile != null) {
+				out.close();
+			} else {
+				out.flush();
+			}
+		}
+
+	} // end writeReport(ReportLog, List<RescaleTarget>, boolean)
+
+} // end class BatchMain
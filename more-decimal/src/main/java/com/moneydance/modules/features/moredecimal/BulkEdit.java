@@ -0,0 +1,129 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.moneydance.modules.features.moredecimal;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import com.infinitekind.moneydance.model.Account;
+import com.infinitekind.moneydance.model.AccountBook;
+
+/**
+ * Defers balance recalculation in the account book while a commit syncs many
+ * transactions, then syncs each affected account once at the end so its
+ * listeners see the new balances. The only hook used,
+ * AccountBook.setRecalcBalances(boolean), isn't in every Moneydance build the
+ * extension runs on, so it is looked up by name and reported by name when
+ * found; when it is missing, nothing is deferred and each sync is processed as
+ * it happens.
+ */
+class BulkEdit {
+	private AccountBook book;
+	private Set<Account> accounts = new LinkedHashSet<>();
+	private boolean deferring = false;
+
+	// AccountBook.setRecalcBalances(boolean), or null when unavailable
+	private static final Method setRecalcBalances =
+		findMethod(AccountBook.class, "setRecalcBalances", boolean.class);
+
+	/**
+	 * Sole constructor; starts deferring when the account book allows it.
+	 *
+	 * @param book Moneydance account book
+	 * @param accounts The accounts whose transactions will change
+	 */
+	BulkEdit(AccountBook book, Collection<Account> accounts) {
+		this.book = book;
+
+		for (Account account : accounts) {
+			this.accounts.add(account);
+
+			if (account.getParentAccount() != null) {
+				// the investment account shows the security's holdings
+				this.accounts.add(account.getParentAccount());
+			}
+		} // end for
+
+		if (setRecalcBalances != null) {
+			this.deferring = invoke(setRecalcBalances, book, Boolean.FALSE);
+		}
+
+	} // end (AccountBook, Collection<Account>) constructor
+
+	/**
+	 * @return True when the account book is deferring balance recalculation
+	 */
+	public boolean isDeferring() {
+
+		return this.deferring;
+	} // end isDeferring()
+
+	/**
+	 * @return The hook used to defer balance recalculation, as
+	 *         Class.method(parameters), or null when none was found
+	 */
+	public static String getDeferringHook() {
+		if (setRecalcBalances == null)
+			return null;
+
+		return setRecalcBalances.getDeclaringClass().getSimpleName() + '.'
+			+ setRecalcBalances.getName() + "(boolean)";
+	} // end getDeferringHook()
+
+	/**
+	 * Resume balance recalculation, then sync each affected account once so its
+	 * listeners hear it changed.
+	 */
+	public void end() {
+		if (!this.deferring)
+			return;
+		this.deferring = false;
+		invoke(setRecalcBalances, this.book, Boolean.TRUE);
+
+		for (Account account : this.accounts) {
+			account.syncItem();
+		} // end for
+
+	} // end end()
+
+	/**
+	 * @param type
+	 * @param name
+	 * @param parameterTypes
+	 * @return The public method, or null when type has none by that name
+	 */
+	private static Method findMethod(Class<?> type, String name, Class<?>... parameterTypes) {
+		try {
+
+			return type.getMethod(name, parameterTypes);
+		} catch (NoSuchMethodException | SecurityException e) {
+
+			return null;
+		}
+	} // end findMethod(Class<?>, String, Class<?>...)
+
+	/**
+	 * @param method
+	 * @param target
+	 * @param args
+	 * @return True when the method ran without throwing
+	 */
+	private static boolean invoke(Method method, Object target, Object... args) {
+		try {
+			method.invoke(target, args);
+
+			return true;
+		} catch (InvocationTargetException e) {
+			e.getCause().printStackTrace(System.err);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			e.printStackTrace(System.err);
+		}
+
+		return false;
+	} // end invoke(Method, Object, Object...)
+
+} // end class BulkEdit
@@ -0,0 +1,274 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.moneydance.modules.features.moredecimal;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Timings and counts for one stage or commit operation. Phase times from
+ * concurrent account verification are summed thread time, so they can add up
+ * to more than the elapsed time. When the operation finishes, the metrics are
+ * emitted as a flight recorder event and may be appended to a JSON lines
+ * history file.
+ */
+public class ChangeMetrics {
+	private String operation;
+	private long startNanos;
+	private long elapsedNanos = 0;
+	private long startAllocated;
+	private long allocatedBytes = 0;
+	private long[] phaseNanos = new long[PHASE_NAMES.length];
+	private int numAcnts = 0;
+	private int numTxns = 0;
+	private int numSyncs = 0;
+	private int[] acntTxns = new int[16];
+	private boolean bulkEdit = false;
+	private ChangeMetricsEvent event = new ChangeMetricsEvent();
+
+	public static final String STAGE = "stage";
+	public static final String COMMIT = "commit";
+
+	// phases
+	public static final int FIND_ACCOUNTS = 0;
+	public static final int LOAD_TXNS = 1;
+	public static final int BUILD_BALANCES = 2;
+	public static final int VERIFY_AND_STAGE = 3;
+	public static final int GROUP_BY_PARENT = 4;
+	public static final int EDIT_PARENTS = 5;
+	public static final int SYNC_PARENTS = 6;
+	public static final int PAUSE_BETWEEN_CHUNKS = 7;
+	public static final int REFRESH_ACCOUNTS = 8;
+	private static final String[] PHASE_NAMES = { "findAccounts", "loadTxns", "buildBalances",
+		"verifyAndStage", "groupByParent", "editParents", "syncParents", "chunkPauses",
+		"refreshAccounts" };
+
+	private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+	/**
+	 * Sole constructor; starts timing the operation on the current thread.
+	 *
+	 * @param operation STAGE or COMMIT
+	 */
+	public ChangeMetrics(String operation) {
+		this.operation = operation;
+		this.event.begin();
+		this.startAllocated = threadAllocatedBytes();
+		this.startNanos = System.nanoTime();
+
+	} // end (String) constructor
+
+	/**
+	 * @return Bytes allocated so far by the current thread, or zero when unknown
+	 */
+	public static long threadAllocatedBytes() {
+		if (threadBean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threadBean;
+
+			if (bean.isThreadAllocatedMemoryEnabled())
+				return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+
+		return 0;
+	} // end threadAllocatedBytes()
+
+	/**
+	 * @param phase Which phase
+	 * @param nanos Time spent in that phase
+	 */
+	public void addPhaseTime(int phase, long nanos) {
+		this.phaseNanos[phase] += nanos;
+
+	} // end addPhaseTime(int, long)
+
+	/**
+	 * @param bytes Bytes allocated on other threads for this operation
+	 */
+	public void addAllocated(long bytes) {
+		this.allocatedBytes += bytes;
+
+	} // end addAllocated(long)
+
+	/**
+	 * @param txns Number of transactions verified in one more account
+	 */
+	public void addAccount(int txns) {
+		if (this.numAcnts == this.acntTxns.length) {
+			this.acntTxns = Arrays.copyOf(this.acntTxns, this.numAcnts * 2);
+		}
+		this.acntTxns[this.numAcnts++] = txns;
+		this.numTxns += txns;
+
+	} // end addAccount(int)
+
+	/**
+	 * @param bulkEdit True when balance recalculation was deferred until the
+	 *                 end of the operation
+	 */
+	public void setBulkEdit(boolean bulkEdit) {
+		this.bulkEdit = bulkEdit;
+
+	} // end setBulkEdit(boolean)
+
+	/**
+	 * @param txns Number of transactions changed in one more sync
+	 */
+	public void addSync(int txns) {
+		++this.numSyncs;
+		this.numTxns += txns;
+
+	} // end addSync(int)
+
+	/**
+	 * Stop timing the operation and emit its flight recorder event. Must be
+	 * called on the thread that created these metrics.
+	 *
+	 * @param countedBytes Bytes allocated on this thread that were already added
+	 *                     from per account measurements
+	 */
+	public void finish(long countedBytes) {
+		this.elapsedNanos = System.nanoTime() - this.startNanos;
+		this.allocatedBytes += threadAllocatedBytes() - this.startAllocated - countedBytes;
+		this.event.end();
+
+		if (this.event.shouldCommit()) {
+			this.event.operation = this.operation;
+			this.event.accounts = this.numAcnts;
+			this.event.transactions = this.numTxns;
+			this.event.syncs = this.numSyncs;
+			this.event.allocatedBytes = this.allocatedBytes;
+			this.event.findAccounts = this.phaseNanos[FIND_ACCOUNTS];
+			this.event.loadTxns = this.phaseNanos[LOAD_TXNS];
+			this.event.buildBalances = this.phaseNanos[BUILD_BALANCES];
+			this.event.verifyAndStage = this.phaseNanos[VERIFY_AND_STAGE];
+			this.event.groupByParent = this.phaseNanos[GROUP_BY_PARENT];
+			this.event.editParents = this.phaseNanos[EDIT_PARENTS];
+			this.event.syncParents = this.phaseNanos[SYNC_PARENTS];
+			this.event.chunkPauses = this.phaseNanos[PAUSE_BETWEEN_CHUNKS];
+			this.event.refreshAccounts = this.phaseNanos[REFRESH_ACCOUNTS];
+			this.event.bulkEdit = this.bulkEdit;
+			this.event.commit();
+		}
+
+	} // end finish(long)
+
+	/**
+	 * @return STAGE or COMMIT
+	 */
+	public String getOperation() {
+
+		return this.operation;
+	} // end getOperation()
+
+	/**
+	 * @return Elapsed milliseconds for the operation
+	 */
+	public long getElapsedMillis() {
+
+		return this.elapsedNanos / 1000000;
+	} // end getElapsedMillis()
+
+	/**
+	 * @param phase Which phase
+	 * @return Milliseconds spent in that phase
+	 */
+	public long getPhaseMillis(int phase) {
+
+		return this.phaseNanos[phase] / 1000000;
+	} // end getPhaseMillis(int)
+
+	/**
+	 * @return Kilobytes allocated for the operation
+	 */
+	public long getAllocatedKB() {
+
+		return this.allocatedBytes / 1024;
+	} // end getAllocatedKB()
+
+	/**
+	 * @return Number of accounts verified
+	 */
+	public int getNumAccounts() {
+
+		return this.numAcnts;
+	} // end getNumAccounts()
+
+	/**
+	 * @return Number of transactions verified or committed
+	 */
+	public int getNumTxns() {
+
+		return this.numTxns;
+	} // end getNumTxns()
+
+	/**
+	 * @return Number of parent transaction syncs
+	 */
+	public int getNumSyncs() {
+
+		return this.numSyncs;
+	} // end getNumSyncs()
+
+	/**
+	 * @return The most transactions verified in any one account
+	 */
+	public int getMaxAccountTxns() {
+		int max = 0;
+
+		for (int i = 0; i < this.numAcnts; ++i) {
+			max = Math.max(max, this.acntTxns[i]);
+		}
+
+		return max;
+	} // end getMaxAccountTxns()
+
+	/**
+	 * Append these metrics as one JSON line to a history file.
+	 *
+	 * @param historyFile The file to append to
+	 */
+	public void appendHistory(Path historyFile) {
+		StringBuilder line = new StringBuilder(256 + this.numAcnts * 8);
+		line.append("{\"time\":\"").append(Instant.now()).append('"');
+		line.append(",\"operation\":\"").append(this.operation).append('"');
+		line.append(",\"elapsedNanos\":").append(this.elapsedNanos);
+		line.append(",\"accounts\":").append(this.numAcnts);
+		line.append(",\"transactions\":").append(this.numTxns);
+		line.append(",\"syncs\":").append(this.numSyncs);
+		line.append(",\"allocatedBytes\":").append(this.allocatedBytes);
+		line.append(",\"bulkEdit\":").append(this.bulkEdit);
+		line.append(",\"phaseNanos\":{");
+
+		for (int phase = 0; phase < PHASE_NAMES.length; ++phase) {
+			if (phase > 0) {
+				line.append(',');
+			}
+			line.append('"').append(PHASE_NAMES[phase]).append("\":").append(this.phaseNanos[phase]);
+		} // end for
+		line.append("},\"accountTxns\":[");
+
+		for (int i = 0; i < this.numAcnts; ++i) {
+			if (i > 0) {
+				line.append(',');
+			}
+			line.append(this.acntTxns[i]);
+		} // end for
+		line.append("]}").append(System.lineSeparator());
+		try {
+			Files.write(historyFile, line.toString().getBytes(StandardCharsets.UTF_8),
+				StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+		} catch (IOException e) {
+			e.printStackTrace(System.err);
+		}
+
+	} // end appendHistory(Path)
+
+} // end class ChangeMetrics
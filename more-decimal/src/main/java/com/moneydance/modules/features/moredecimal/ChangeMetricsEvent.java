@@ -0,0 +1,76 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.moneydance.modules.features.moredecimal;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event for one stage or commit operation.
+ */
+@Name("com.moneydance.moredecimal.ChangeMetrics")
+@Label("More Decimal Operation")
+@Category("More Decimal")
+@Description("Timings and counts for staging or committing decimal place changes")
+class ChangeMetricsEvent extends jdk.jfr.Event {
+	@Label("Operation")
+	String operation;
+
+	@Label("Accounts")
+	int accounts;
+
+	@Label("Transactions")
+	int transactions;
+
+	@Label("Syncs")
+	int syncs;
+
+	@Label("Allocated")
+	@DataAmount
+	long allocatedBytes;
+
+	@Label("Find Accounts")
+	@Timespan
+	long findAccounts;
+
+	@Label("Load Transactions")
+	@Timespan
+	long loadTxns;
+
+	@Label("Build Balances")
+	@Timespan
+	long buildBalances;
+
+	@Label("Verify and Stage")
+	@Timespan
+	long verifyAndStage;
+
+	@Label("Group by Parent")
+	@Timespan
+	long groupByParent;
+
+	@Label("Edit Parents")
+	@Timespan
+	long editParents;
+
+	@Label("Sync Parents")
+	@Timespan
+	long syncParents;
+
+	@Label("Chunk Pauses")
+	@Timespan
+	long chunkPauses;
+
+	@Label("Refresh Accounts")
+	@Timespan
+	long refreshAccounts;
+
+	@Label("Bulk Edit")
+	boolean bulkEdit;
+
+} // end class ChangeMetricsEvent
@@ -0,0 +1,411 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.moneydance.modules.features.moredecimal;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import com.infinitekind.moneydance.model.Account;
+import com.infinitekind.moneydance.model.ParentTxn;
+import com.infinitekind.moneydance.model.SplitTxn;
+
+/**
+ * Streams a staged change set to and from a compact file, so it can be
+ * reviewed outside Moneydance and applied in a later session. The file is
+ * written and read through a small buffer, so its size does not affect
+ * memory use.
+ * <p>
+ * Layout: a header (magic, version, export time, target count, account count,
+ * change count), then each target (security UUID, old decimals, new
+ * decimals), then each account (target ordinal, account UUID, full account
+ * name, split count, split fingerprint, change count) followed by that
+ * account's changes (parent transaction UUID, split index, date, old shares,
+ * new shares). The split count and fingerprint are of all the account's splits
+ * when staged, so an import can tell when any were added or removed since.
+ * Strings are a short byte length followed by UTF-8 bytes.
+ */
+public class ChangeSetFile implements Closeable {
+	private FileChannel channel;
+	private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+	private long exportTime;
+	private String[] securityIds;
+	private int[] oldDecimals;
+	private int[] newDecimals;
+	private int numAccounts;
+	private int numChanges;
+	private int accountsRead = 0;
+	private int changesLeftInAccount = 0;
+
+	// the current account
+	private int targetOrdinal;
+	private String accountId;
+	private String accountName;
+	private int splitCount;
+	private long fingerprint;
+
+	// the current change
+	private String parentId;
+	private int splitIndex;
+	private int dateInt;
+	private long oldShares;
+	private long newShares;
+
+	private static final int MAGIC = 0x4D444353; // "MDCS"
+	private static final int VERSION = 2;
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Sole constructor; reads the header and targets of a change set file.
+	 *
+	 * @param channel The open change set file channel
+	 */
+	private ChangeSetFile(FileChannel channel) throws IOException {
+		this.channel = channel;
+		this.buffer.flip();
+		require(28);
+
+		if (this.buffer.getInt() != MAGIC)
+			throw new IOException("Not a More Decimal change set file");
+		int version = this.buffer.getInt();
+
+		if (version != VERSION)
+			throw new IOException("Change set file version " + version
+				+ " is not supported; export it again");
+		this.exportTime = this.buffer.getLong();
+		int numTargets = this.buffer.getInt();
+		this.numAccounts = this.buffer.getInt();
+		this.numChanges = this.buffer.getInt();
+		this.securityIds = new String[numTargets];
+		this.oldDecimals = new int[numTargets];
+		this.newDecimals = new int[numTargets];
+
+		for (int t = 0; t < numTargets; ++t) {
+			this.securityIds[t] = readString();
+			require(8);
+			this.oldDecimals[t] = this.buffer.getInt();
+			this.newDecimals[t] = this.buffer.getInt();
+		} // end for
+
+	} // end (FileChannel) constructor
+
+	/**
+	 * Write staged changes, still in account order, to a change set file.
+	 *
+	 * @param file Where to write the change set
+	 * @param targets The securities changing decimal places
+	 * @param accounts The staged accounts, in the same order as their changes
+	 * @param changes The staged changes, in account order
+	 */
+	static void write(Path file, List<RescaleTarget> targets, List<StagedAccount> accounts,
+			StagedChanges changes) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, CREATE, TRUNCATE_EXISTING, WRITE)) {
+			ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+			buffer.putInt(MAGIC);
+			buffer.putInt(VERSION);
+			buffer.putLong(System.currentTimeMillis());
+			buffer.putInt(targets.size());
+			buffer.putInt(changes.getAccountCount());
+			buffer.putInt(changes.size());
+
+			for (RescaleTarget target : targets) {
+				putString(channel, buffer, target.getSecurity().getUUID());
+				ensureRoom(channel, buffer, 8);
+				buffer.putInt(target.getNewDecimalPlaces() - target.getRightMovePlaces());
+				buffer.putInt(target.getNewDecimalPlaces());
+			} // end for
+
+			for (int a = 0; a < changes.getAccountCount(); ++a) {
+				int start = changes.getAccountStart(a);
+				int end = changes.getAccountEnd(a);
+				StagedAccount staged = accounts.get(a);
+				Account account = staged.getSecurityAccount();
+				ensureRoom(channel, buffer, 4);
+				buffer.putInt(targets.indexOf(staged.getTarget()));
+				putString(channel, buffer, account.getUUID());
+				putString(channel, buffer, account.getFullAccountName());
+				ensureRoom(channel, buffer, 16);
+				buffer.putInt(staged.getTxnCount());
+				buffer.putLong(staged.getFingerprint());
+				buffer.putInt(end - start);
+
+				for (int i = start; i < end; ++i) {
+					SplitTxn sTxn = changes.getTxn(i);
+					ParentTxn pTxn = sTxn.getParentTxn();
+					putString(channel, buffer, pTxn.getUUID());
+					ensureRoom(channel, buffer, 24);
+					buffer.putInt(CommitJournal.splitIndex(pTxn, sTxn));
+					buffer.putInt(sTxn.getDateInt());
+					buffer.putLong(sTxn.getValue());
+					buffer.putLong(changes.getNewShares(i));
+				} // end for
+			} // end for
+			flush(channel, buffer);
+		}
+
+	} // end write(Path, List<RescaleTarget>, List<StagedAccount>, StagedChanges)
+
+	/**
+	 * @param file A change set file
+	 * @return The change set, positioned before its first account
+	 */
+	public static ChangeSetFile open(Path file) throws IOException {
+		FileChannel channel = FileChannel.open(file, READ);
+		try {
+
+			return new ChangeSetFile(channel);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+
+			throw e;
+		}
+	} // end open(Path)
+
+	/**
+	 * Advance to the next account, skipping any changes left in this one.
+	 *
+	 * @return True when there is another account
+	 */
+	public boolean nextAccount() throws IOException {
+		while (this.changesLeftInAccount > 0) {
+			nextChange();
+		}
+
+		if (this.accountsRead == this.numAccounts)
+			return false;
+		++this.accountsRead;
+		require(4);
+		this.targetOrdinal = this.buffer.getInt();
+
+		if (this.targetOrdinal < 0 || this.targetOrdinal >= this.securityIds.length)
+			throw new IOException("Change set file has an account with no security");
+		this.accountId = readString();
+		this.accountName = readString();
+		require(16);
+		this.splitCount = this.buffer.getInt();
+		this.fingerprint = this.buffer.getLong();
+		this.changesLeftInAccount = this.buffer.getInt();
+
+		return true;
+	} // end nextAccount()
+
+	/**
+	 * Advance to the next change in the current account.
+	 *
+	 * @return True when the account has another change
+	 */
+	public boolean nextChange() throws IOException {
+		if (this.changesLeftInAccount == 0)
+			return false;
+		--this.changesLeftInAccount;
+		this.parentId = readString();
+		require(24);
+		this.splitIndex = this.buffer.getInt();
+		this.dateInt = this.buffer.getInt();
+		this.oldShares = this.buffer.getLong();
+		this.newShares = this.buffer.getLong();
+
+		return true;
+	} // end nextChange()
+
+	public void close() throws IOException {
+		this.channel.close();
+
+	} // end close()
+
+	/**
+	 * @return When the change set was exported, in milliseconds since the epoch
+	 */
+	public long getExportTime() {
+
+		return this.exportTime;
+	} // end getExportTime()
+
+	public int getNumTargets() {
+
+		return this.securityIds.length;
+	} // end getNumTargets()
+
+	/**
+	 * @param target Target ordinal
+	 * @return UUID of the target's security
+	 */
+	public String getSecurityId(int target) {
+
+		return this.securityIds[target];
+	} // end getSecurityId(int)
+
+	/**
+	 * @param target Target ordinal
+	 * @return The security's decimal places when exported
+	 */
+	public int getOldDecimals(int target) {
+
+		return this.oldDecimals[target];
+	} // end getOldDecimals(int)
+
+	/**
+	 * @param target Target ordinal
+	 * @return The security's new decimal places
+	 */
+	public int getNewDecimals(int target) {
+
+		return this.newDecimals[target];
+	} // end getNewDecimals(int)
+
+	public int getNumAccounts() {
+
+		return this.numAccounts;
+	} // end getNumAccounts()
+
+	public int getNumChanges() {
+
+		return this.numChanges;
+	} // end getNumChanges()
+
+	/**
+	 * @return Target ordinal of the current account
+	 */
+	public int getTargetOrdinal() {
+
+		return this.targetOrdinal;
+	} // end getTargetOrdinal()
+
+	public String getAccountId() {
+
+		return this.accountId;
+	} // end getAccountId()
+
+	public String getAccountName() {
+
+		return this.accountName;
+	} // end getAccountName()
+
+	/**
+	 * @return Number of splits in the current account when staged
+	 */
+	public int getSplitCount() {
+
+		return this.splitCount;
+	} // end getSplitCount()
+
+	/**
+	 * @return Fingerprint of all the current account's splits when staged
+	 */
+	public long getFingerprint() {
+
+		return this.fingerprint;
+	} // end getFingerprint()
+
+	public String getParentId() {
+
+		return this.parentId;
+	} // end getParentId()
+
+	public int getSplitIndex() {
+
+		return this.splitIndex;
+	} // end getSplitIndex()
+
+	public int getDateInt() {
+
+		return this.dateInt;
+	} // end getDateInt()
+
+	public long getOldShares() {
+
+		return this.oldShares;
+	} // end getOldShares()
+
+	public long getNewShares() {
+
+		return this.newShares;
+	} // end getNewShares()
+
+	/**
+	 * Make sure the buffer holds at least some number of unread bytes.
+	 *
+	 * @param numBytes
+	 */
+	private void require(int numBytes) throws IOException {
+		if (this.buffer.remaining() < numBytes) {
+			this.buffer.compact();
+
+			while (this.buffer.position() < numBytes) {
+				if (this.channel.read(this.buffer) < 0)
+					throw new EOFException("Change set file is truncated");
+			}
+			this.buffer.flip();
+		}
+
+	} // end require(int)
+
+	/**
+	 * @return The next string
+	 */
+	private String readString() throws IOException {
+		require(2);
+		int length = this.buffer.getShort() & 0xFFFF;
+		require(length);
+		String str = new String(this.buffer.array(), this.buffer.position(), length,
+			StandardCharsets.UTF_8);
+		this.buffer.position(this.buffer.position() + length);
+
+		return str;
+	} // end readString()
+
+	/**
+	 * @param channel
+	 * @param buffer
+	 * @param str The string to put
+	 */
+	private static void putString(FileChannel channel, ByteBuffer buffer, String str)
+			throws IOException {
+		byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+		ensureRoom(channel, buffer, 2 + bytes.length);
+		buffer.putShort((short) bytes.length);
+		buffer.put(bytes);
+
+	} // end putString(FileChannel, ByteBuffer, String)
+
+	/**
+	 * Write the buffer out when it lacks room for some number of bytes.
+	 *
+	 * @param channel
+	 * @param buffer
+	 * @param numBytes
+	 */
+	private static void ensureRoom(FileChannel channel, ByteBuffer buffer, int numBytes)
+			throws IOException {
+		if (buffer.remaining() < numBytes) {
+			flush(channel, buffer);
+		}
+
+	} // end ensureRoom(FileChannel, ByteBuffer, int)
+
+	/**
+	 * @param channel
+	 * @param buffer Bytes to write to the channel
+	 */
+	private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+
+	} // end flush(FileChannel, ByteBuffer)
+
+} // end class ChangeSetFile
@@ -0,0 +1,532 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.moneydance.modules.features.moredecimal;
+
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.IntFunction;
+
+import com.infinitekind.moneydance.model.ParentTxn;
+import com.infinitekind.moneydance.model.SplitTxn;
+
+/**
+ * Write-ahead journal of a commit, in a memory-mapped file. Before any change
+ * is applied, the journal records each security's old and new decimal places
+ * and each split's parent, position, and old and new shares. As parent
+ * transactions are synced, the journal's committed count advances. When a
+ * commit is interrupted, the journal is left in the committing state so the
+ * commit can be resumed or rolled back later. A finished journal is marked
+ * done before its file is deleted, so a file that can't be deleted yet, such
+ * as one still mapped on Windows, is skipped and deleted on a later search.
+ * <p>
+ * Applying a journal entry sets an absolute share value, so entries may be
+ * applied again safely. The committed count is only forced to disk
+ * periodically, so after a crash it may lag, but never lead, the changes
+ * actually made.
+ * <p>
+ * Layout: a fixed header, then each target (security UUID, old decimals, new
+ * decimals), then each parent transaction UUID, then fixed size entries (parent
+ * ordinal, split index, old shares, new shares). Strings are a short byte
+ * length followed by UTF-8 bytes.
+ */
+public class CommitJournal {
+	private Path file;
+	private FileChannel channel;
+	private MappedByteBuffer buffer;
+	private String[] securityIds;
+	private int[] oldDecimals;
+	private int[] newDecimals;
+	private int[] parentOffsets;
+	private int numEntries;
+	private int entriesOffset;
+	private int numMarks = 0;
+
+	private static final int MAGIC = 0x4D44434A; // "MDCJ"
+	private static final int VERSION = 1;
+
+	// states
+	public static final int STATE_WRITING = 0;
+	public static final int STATE_COMMITTING = 1;
+	public static final int STATE_DONE = 2;
+
+	// header offsets
+	private static final int MAGIC_OFFSET = 0;
+	private static final int VERSION_OFFSET = 4;
+	private static final int STATE_OFFSET = 8;
+	private static final int TARGETS_COUNT_OFFSET = 12;
+	private static final int PARENTS_COUNT_OFFSET = 16;
+	private static final int ENTRIES_COUNT_OFFSET = 20;
+	private static final int ENTRIES_OFFSET_OFFSET = 24;
+	private static final int COMMITTED_OFFSET = 28;
+	private static final int HEADER_SIZE = 32;
+
+	private static final int ENTRY_SIZE = 24; // int, int, long, long
+	private static final int FORCE_INTERVAL = 256; // marks between forces to disk
+	private static final String FILE_PREFIX = "moredecimal-commit-";
+	private static final String FILE_SUFFIX = ".mdj";
+
+	/**
+	 * Sole constructor; reads the targets and parent offsets of a mapped journal.
+	 *
+	 * @param file The journal file
+	 * @param channel The open journal file channel
+	 * @param buffer The journal file mapped into memory
+	 */
+	private CommitJournal(Path file, FileChannel channel, MappedByteBuffer buffer) {
+		this.file = file;
+		this.channel = channel;
+		this.buffer = buffer;
+		int numTargets = buffer.getInt(TARGETS_COUNT_OFFSET);
+		this.securityIds = new String[numTargets];
+		this.oldDecimals = new int[numTargets];
+		this.newDecimals = new int[numTargets];
+		int offset = HEADER_SIZE;
+
+		for (int t = 0; t < numTargets; ++t) {
+			this.securityIds[t] = getString(offset);
+			offset += stringSize(buffer.getShort(offset));
+			this.oldDecimals[t] = buffer.getInt(offset);
+			this.newDecimals[t] = buffer.getInt(offset + 4);
+			offset += 8;
+		} // end for
+		this.parentOffsets = new int[buffer.getInt(PARENTS_COUNT_OFFSET)];
+
+		for (int p = 0; p < this.parentOffsets.length; ++p) {
+			this.parentOffsets[p] = offset;
+			offset += stringSize(buffer.getShort(offset));
+		} // end for
+		this.numEntries = buffer.getInt(ENTRIES_COUNT_OFFSET);
+		this.entriesOffset = buffer.getInt(ENTRIES_OFFSET_OFFSET);
+
+	} // end (Path, FileChannel, MappedByteBuffer) constructor
+
+	/**
+	 * Write a journal of staged changes, grouped by parent transaction, straight
+	 * into a new memory-mapped file, then mark it committing.
+	 *
+	 * @param folder Where to keep the journal file
+	 * @param targets The securities changing decimal places
+	 * @param changes The staged changes, grouped by parent transaction
+	 * @return The journal, ready to mark commit progress
+	 */
+	public static CommitJournal create(Path folder, List<RescaleTarget> targets,
+			StagedChanges changes) throws IOException {
+
+		return create(folder, targets, 1, group -> changes);
+	} // end create(Path, List<RescaleTarget>, StagedChanges)
+
+	/**
+	 * Write a journal of changes staged one group at a time, such as one account
+	 * at a time, straight into a new memory-mapped file, then mark it committing.
+	 * Each group is asked for twice, once to size the file and once to fill it,
+	 * so only one group's changes need be held at a time.
+	 *
+	 * @param folder Where to keep the journal file
+	 * @param targets The securities changing decimal places
+	 * @param numGroups Number of groups of changes
+	 * @param groupChanges The changes of each group, grouped by parent transaction
+	 * @return The journal, ready to mark commit progress
+	 */
+	public static CommitJournal create(Path folder, List<RescaleTarget> targets,
+			int numGroups, IntFunction<StagedChanges> groupChanges) throws IOException {
+		// size everything first so the file can be mapped once
+		int size = HEADER_SIZE;
+
+		for (RescaleTarget target : targets) {
+			size += stringSize(utf8Length(target.getSecurity().getUUID())) + 8;
+		}
+		int numParents = 0;
+		int numEntries = 0;
+
+		for (int g = 0; g < numGroups; ++g) {
+			StagedChanges changes = groupChanges.apply(g);
+			ParentTxn prevParent = null;
+
+			for (int i = 0; i < changes.size(); ++i) {
+				ParentTxn pTxn = changes.getTxn(i).getParentTxn();
+
+				if (pTxn != prevParent) {
+					++numParents;
+					size += stringSize(utf8Length(pTxn.getUUID()));
+					prevParent = pTxn;
+				}
+			} // end for
+			numEntries += changes.size();
+		} // end for
+		int entriesOffset = (size + 7) & ~7;
+		size = Math.addExact(entriesOffset, Math.multiplyExact(numEntries, ENTRY_SIZE));
+
+		Path file = folder.resolve(FILE_PREFIX + System.currentTimeMillis() + FILE_SUFFIX);
+		FileChannel channel = FileChannel.open(file, CREATE_NEW, READ, WRITE);
+		try {
+			MappedByteBuffer buffer = channel.map(MapMode.READ_WRITE, 0, size);
+			buffer.putInt(MAGIC_OFFSET, MAGIC);
+			buffer.putInt(VERSION_OFFSET, VERSION);
+			buffer.putInt(STATE_OFFSET, STATE_WRITING);
+			buffer.putInt(TARGETS_COUNT_OFFSET, targets.size());
+			buffer.putInt(PARENTS_COUNT_OFFSET, numParents);
+			buffer.putInt(ENTRIES_COUNT_OFFSET, numEntries);
+			buffer.putInt(ENTRIES_OFFSET_OFFSET, entriesOffset);
+			buffer.putInt(COMMITTED_OFFSET, 0);
+			buffer.position(HEADER_SIZE);
+
+			for (RescaleTarget target : targets) {
+				putString(buffer, target.getSecurity().getUUID());
+				buffer.putInt(target.getNewDecimalPlaces() - target.getRightMovePlaces());
+				buffer.putInt(target.getNewDecimalPlaces());
+			} // end for
+			int entryOffset = entriesOffset;
+			int parentOrdinal = -1;
+
+			for (int g = 0; g < numGroups; ++g) {
+				StagedChanges changes = groupChanges.apply(g);
+				ParentTxn prevParent = null;
+
+				for (int i = 0; i < changes.size(); ++i) {
+					SplitTxn sTxn = changes.getTxn(i);
+					ParentTxn pTxn = sTxn.getParentTxn();
+
+					if (pTxn != prevParent) {
+						// parent ids fill in ahead of the entries as each new parent is reached
+						putString(buffer, pTxn.getUUID());
+						++parentOrdinal;
+						prevParent = pTxn;
+					}
+					buffer.putInt(entryOffset, parentOrdinal);
+					buffer.putInt(entryOffset + 4, splitIndex(pTxn, sTxn));
+					buffer.putLong(entryOffset + 8, sTxn.getValue());
+					buffer.putLong(entryOffset + 16, changes.getNewShares(i));
+					entryOffset += ENTRY_SIZE;
+				} // end for
+			} // end for
+
+			if (parentOrdinal + 1 != numParents || entryOffset != size
+					|| buffer.position() > entriesOffset)
+				throw new IOException("Changes differ from when the journal was sized");
+			buffer.force();
+
+			// only now is the journal complete enough to recover from
+			buffer.putInt(STATE_OFFSET, STATE_COMMITTING);
+			buffer.force();
+
+			return new CommitJournal(file, channel, buffer);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			// never marked committing, so a later search deletes it if this can't
+			delete(file);
+
+			throw e;
+		}
+	} // end create(Path, List<RescaleTarget>, int, IntFunction<StagedChanges>)
+
+	/**
+	 * Find a journal left by an interrupted commit. Journals of completed commits
+	 * that could not be deleted earlier, and of commits that never got past
+	 * writing their journal, are deleted now when possible.
+	 *
+	 * @param folder Where journal files are kept
+	 * @return The interrupted journal, or null when there is none
+	 */
+	public static CommitJournal findInterrupted(Path folder) throws IOException {
+		if (!Files.isDirectory(folder))
+			return null;
+
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(folder,
+				FILE_PREFIX + "*" + FILE_SUFFIX)) {
+			for (Path file : files) {
+				int state = readState(file);
+
+				if (state == STATE_COMMITTING) {
+					CommitJournal journal = open(file);
+
+					if (journal != null)
+						return journal;
+				} else if (state >= 0) {
+					// nothing left to recover from this journal
+					delete(file);
+				}
+			} // end for
+		}
+
+		return null;
+	} // end findInterrupted(Path)
+
+	/**
+	 * Read a journal's state without mapping its file, so a journal found
+	 * finished can be deleted right away.
+	 *
+	 * @param file A journal file
+	 * @return The journal's state, or -1 when the file is not a complete journal
+	 *         header
+	 */
+	private static int readState(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+
+			while (header.hasRemaining()) {
+				if (channel.read(header) < 0)
+					return -1;
+			}
+
+			if (header.getInt(MAGIC_OFFSET) != MAGIC || header.getInt(VERSION_OFFSET) != VERSION)
+				return -1;
+
+			return header.getInt(STATE_OFFSET);
+		}
+	} // end readState(Path)
+
+	/**
+	 * Delete a journal file when the platform allows; a file still mapped may
+	 * have to wait for a later search.
+	 *
+	 * @param file A journal file with nothing left to recover
+	 */
+	private static void delete(Path file) {
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			// still in use; findInterrupted tries again next time
+		}
+
+	} // end delete(Path)
+
+	/**
+	 * @param file A journal file
+	 * @return The mapped journal, or null when the file is not a complete journal
+	 */
+	private static CommitJournal open(Path file) throws IOException {
+		FileChannel channel = FileChannel.open(file, READ, WRITE);
+		long size = channel.size();
+
+		if (size >= HEADER_SIZE && size <= Integer.MAX_VALUE) {
+			MappedByteBuffer buffer = channel.map(MapMode.READ_WRITE, 0, size);
+
+			if (buffer.getInt(MAGIC_OFFSET) == MAGIC && buffer.getInt(VERSION_OFFSET) == VERSION)
+				return new CommitJournal(file, channel, buffer);
+		}
+		channel.close();
+
+		return null;
+	} // end open(Path)
+
+	/**
+	 * @param pTxn A parent transaction
+	 * @param sTxn One of its splits
+	 * @return The position of the split in its parent
+	 */
+	static int splitIndex(ParentTxn pTxn, SplitTxn sTxn) {
+		for (int i = 0; i < pTxn.getSplitCount(); ++i) {
+			if (pTxn.getSplit(i) == sTxn)
+				return i;
+		}
+
+		throw new IllegalStateException("Split not found in its parent " + pTxn.getUUID());
+	} // end splitIndex(ParentTxn, SplitTxn)
+
+	/**
+	 * Record that changes before an index have been synced.
+	 *
+	 * @param numCommitted Number of entries applied so far
+	 */
+	public void markCommitted(int numCommitted) {
+		this.buffer.putInt(COMMITTED_OFFSET, numCommitted);
+
+		if (++this.numMarks % FORCE_INTERVAL == 0) {
+			this.buffer.force();
+		}
+
+	} // end markCommitted(int)
+
+	/**
+	 * Mark the commit complete, release the journal and delete its file. Windows
+	 * won't delete a file while it is still mapped, which lasts until the mapping
+	 * is garbage collected; since the journal is already marked done, a later
+	 * search skips it and deletes it then.
+	 *
+	 * @return null
+	 */
+	public CommitJournal finish() {
+		this.buffer.putInt(STATE_OFFSET, STATE_DONE);
+		close();
+		delete(this.file);
+
+		return null;
+	} // end finish()
+
+	/**
+	 * Release the journal, leaving its file for a later recovery.
+	 *
+	 * @return null
+	 */
+	public CommitJournal close() {
+		this.buffer.force();
+		try {
+			this.channel.close();
+		} catch (IOException e) {
+			e.printStackTrace(System.err);
+		}
+
+		return null;
+	} // end close()
+
+	/**
+	 * @return STATE_WRITING, STATE_COMMITTING or STATE_DONE
+	 */
+	public int getState() {
+
+		return this.buffer.getInt(STATE_OFFSET);
+	} // end getState()
+
+	/**
+	 * @return Number of entries known to be applied
+	 */
+	public int getNumCommitted() {
+
+		return this.buffer.getInt(COMMITTED_OFFSET);
+	} // end getNumCommitted()
+
+	/**
+	 * @return Number of securities changing decimal places
+	 */
+	public int getNumTargets() {
+
+		return this.securityIds.length;
+	} // end getNumTargets()
+
+	/**
+	 * @param target Index of a target
+	 * @return The UUID of the target security
+	 */
+	public String getSecurityId(int target) {
+
+		return this.securityIds[target];
+	} // end getSecurityId(int)
+
+	/**
+	 * @param target Index of a target
+	 * @return The security's decimal places before the commit
+	 */
+	public int getOldDecimals(int target) {
+
+		return this.oldDecimals[target];
+	} // end getOldDecimals(int)
+
+	/**
+	 * @param target Index of a target
+	 * @return The security's decimal places after the commit
+	 */
+	public int getNewDecimals(int target) {
+
+		return this.newDecimals[target];
+	} // end getNewDecimals(int)
+
+	/**
+	 * @return Number of split changes in the journal
+	 */
+	public int getNumEntries() {
+
+		return this.numEntries;
+	} // end getNumEntries()
+
+	/**
+	 * @param entry Index of an entry
+	 * @return The ordinal of the entry's parent transaction
+	 */
+	public int getParentOrdinal(int entry) {
+
+		return this.buffer.getInt(this.entriesOffset + entry * ENTRY_SIZE);
+	} // end getParentOrdinal(int)
+
+	/**
+	 * @param parentOrdinal Ordinal of a parent transaction
+	 * @return The UUID of that parent transaction
+	 */
+	public String getParentId(int parentOrdinal) {
+
+		return getString(this.parentOffsets[parentOrdinal]);
+	} // end getParentId(int)
+
+	/**
+	 * @param entry Index of an entry
+	 * @return The position of the entry's split in its parent
+	 */
+	public int getSplitIndex(int entry) {
+
+		return this.buffer.getInt(this.entriesOffset + entry * ENTRY_SIZE + 4);
+	} // end getSplitIndex(int)
+
+	/**
+	 * @param entry Index of an entry
+	 * @return The split's shares before the commit
+	 */
+	public long getOldShares(int entry) {
+
+		return this.buffer.getLong(this.entriesOffset + entry * ENTRY_SIZE + 8);
+	} // end getOldShares(int)
+
+	/**
+	 * @param entry Index of an entry
+	 * @return The split's shares after the commit
+	 */
+	public long getNewShares(int entry) {
+
+		return this.buffer.getLong(this.entriesOffset + entry * ENTRY_SIZE + 16);
+	} // end getNewShares(int)
+
+	/**
+	 * @param offset Where a string starts in the journal
+	 * @return The string
+	 */
+	private String getString(int offset) {
+		byte[] bytes = new byte[this.buffer.getShort(offset)];
+
+		for (int i = 0; i < bytes.length; ++i) {
+			bytes[i] = this.buffer.get(offset + 2 + i);
+		}
+
+		return new String(bytes, StandardCharsets.UTF_8);
+	} // end getString(int)
+
+	/**
+	 * @param buffer Where to put the string, at its current position
+	 * @param str The string to put
+	 */
+	private static void putString(MappedByteBuffer buffer, String str) {
+		byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+		buffer.putShort((short) bytes.length);
+		buffer.put(bytes);
+
+	} // end putString(MappedByteBuffer, String)
+
+	/**
+	 * @param str
+	 * @return Number of bytes in the string's UTF-8 encoding
+	 */
+	private static int utf8Length(String str) {
+
+		return str.getBytes(StandardCharsets.UTF_8).length;
+	} // end utf8Length(String)
+
+	/**
+	 * @param byteLength Number of bytes in a string's UTF-8 encoding
+	 * @return Number of bytes the string takes in the journal
+	 */
+	private static int stringSize(int byteLength) {
+
+		return 2 + byteLength;
+	} // end stringSize(int)
+
+} // end class CommitJournal
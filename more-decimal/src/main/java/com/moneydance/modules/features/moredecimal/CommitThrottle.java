@@ -0,0 +1,91 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.moneydance.modules.features.moredecimal;
+
+import java.awt.GraphicsEnvironment;
+import java.lang.reflect.InvocationTargetException;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Splits a commit into chunks of parent transaction syncs, pausing between
+ * chunks so the event dispatch thread and Moneydance's own sync can catch up.
+ * The chunk size adapts to the measured time per sync so each chunk takes
+ * about one frame.
+ */
+public class CommitThrottle {
+	private int maxChunk;
+	private long pauseMillis;
+	private int chunkSize = 1;
+	private double nanosPerSync = 0;
+
+	private static final long TARGET_CHUNK_NANOS = 16_000_000; // about one frame
+	private static final double SMOOTHING = 0.3; // weight of the latest measurement
+
+	/**
+	 * Sole constructor.
+	 *
+	 * @param maxChunk The most parent transaction syncs in one chunk
+	 * @param pauseMillis Milliseconds to pause between chunks
+	 */
+	public CommitThrottle(int maxChunk, long pauseMillis) {
+		this.maxChunk = Math.max(maxChunk, 1);
+		this.pauseMillis = Math.max(pauseMillis, 0);
+
+	} // end (int, long) constructor
+
+	/**
+	 * @return Number of parent transaction syncs to do in the next chunk
+	 */
+	public int getChunkSize() {
+
+		return this.chunkSize;
+	} // end getChunkSize()
+
+	/**
+	 * Adjust the chunk size after measuring a chunk.
+	 *
+	 * @param syncs Number of parent transaction syncs in the chunk
+	 * @param nanos Time the chunk took
+	 */
+	public void chunkDone(int syncs, long nanos) {
+		if (syncs > 0) {
+			double latest = (double) nanos / syncs;
+			this.nanosPerSync = this.nanosPerSync == 0 ? latest
+				: SMOOTHING * latest + (1 - SMOOTHING) * this.nanosPerSync;
+			long fit = (long) (TARGET_CHUNK_NANOS / Math.max(this.nanosPerSync, 1));
+
+			// grow at most twofold per chunk so one fast chunk can't overshoot
+			this.chunkSize = (int) Math.max(1, Math.min(Math.min(fit, this.maxChunk),
+				2L * this.chunkSize));
+		}
+
+	} // end chunkDone(int, long)
+
+	/**
+	 * Pause between chunks, then wait for the event dispatch thread to work
+	 * through the events queued so far. Must not be called on that thread.
+	 */
+	public void pause() {
+		try {
+			if (this.pauseMillis > 0) {
+				Thread.sleep(this.pauseMillis);
+			}
+			if (!GraphicsEnvironment.isHeadless() && !SwingUtilities.isEventDispatchThread()) {
+				SwingUtilities.invokeAndWait(new Runnable() {
+					public void run() {
+						// nothing to do; just let queued repaints go first
+
+					} // end run()
+				});
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (InvocationTargetException e) {
+			e.printStackTrace(System.err);
+		}
+
+	} // end pause()
+
+} // end class CommitThrottle
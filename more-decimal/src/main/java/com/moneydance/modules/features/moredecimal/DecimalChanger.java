@@ -3,21 +3,39 @@
  */
 package com.moneydance.modules.features.moredecimal;
 
-import static com.infinitekind.moneydance.model.Account.AccountType.INVESTMENT;
-import static com.moneydance.modules.features.moredecimal.MoreDecimalWindow.baseMessageBundleName;
+import static com.moneydance.modules.features.moredecimal.ChangeMetrics.BUILD_BALANCES;
+import static com.moneydance.modules.features.moredecimal.ChangeMetrics.EDIT_PARENTS;
+import static com.moneydance.modules.features.moredecimal.ChangeMetrics.FIND_ACCOUNTS;
+import static com.moneydance.modules.features.moredecimal.ChangeMetrics.GROUP_BY_PARENT;
+import static com.moneydance.modules.features.moredecimal.ChangeMetrics.LOAD_TXNS;
+import static com.moneydance.modules.features.moredecimal.ChangeMetrics.PAUSE_BETWEEN_CHUNKS;
+import static com.moneydance.modules.features.moredecimal.ChangeMetrics.REFRESH_ACCOUNTS;
+import static com.moneydance.modules.features.moredecimal.ChangeMetrics.SYNC_PARENTS;
+import static com.moneydance.modules.features.moredecimal.ChangeMetrics.VERIFY_AND_STAGE;
+import static com.moneydance.modules.features.moredecimal.Diagnostics.Severity.INFO;
+import static com.moneydance.modules.features.moredecimal.Diagnostics.Severity.WARNING;
+import static com.moneydance.modules.features.moredecimal.FixedPointScaler.RESCALE_OK;
+import static com.moneydance.modules.features.moredecimal.MoreDecimalInterface.baseMessageBundleName;
 import static java.time.format.FormatStyle.MEDIUM;
 
-import java.math.BigDecimal;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.util.ResourceBundle;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.infinitekind.moneydance.model.AbstractTxn;
 import com.infinitekind.moneydance.model.Account;
 import com.infinitekind.moneydance.model.AccountBook;
-import com.infinitekind.moneydance.model.AccountUtil;
 import com.infinitekind.moneydance.model.CurrencyType;
 import com.infinitekind.moneydance.model.ParentTxn;
 import com.infinitekind.moneydance.model.SplitTxn;
@@ -28,33 +46,94 @@ import com.leastlogic.moneydance.util.MdUtil;
  * Module used to change the number of decimal places for a Moneydance security.
  */
 public class DecimalChanger {
-	private MoreDecimalWindow decimalWindow;
+	private MoreDecimalInterface decimalWindow;
 	private Locale locale;
 	private AccountBook book;
 	private TransactionSet txnSet;
+	private SecurityAccountIndex accountIndex;
+	private AccountSummaryCache summaryCache;
 
-	private CurrencyType security = null;
-	private int newDecimalPlaces = 0;
-	private int rightMovePlaces = 0;
+	private List<RescaleTarget> targets = new ArrayList<>();
 	private int numAcnts = 0;
-	private ArrayList<TransactionHandler> changeTxns = new ArrayList<>();
+	private StagedChanges changeTxns = new StagedChanges();
 	private ResourceBundle msgBundle = null;
+	private ProgressReporter progress = NO_PROGRESS;
+	private boolean securityChanged = false;
+	private int numCommitted = 0;
+	private int numSyncs = 0;
+	private boolean parallel = true;
+	private boolean failFast = false;
+	private Diagnostics.Severity diagnosticThreshold = INFO;
+	private volatile boolean stopStaging = false;
+	private AtomicInteger acntsVerified = new AtomicInteger();
+	private AtomicInteger txnsVerified = new AtomicInteger();
+	private Path metricsHistory = null;
+	private Path journalFolder = null;
+	private CommitJournal journal = null;
+	private CommitThrottle throttle = null;
+	private boolean streaming = false;
+	private boolean stagedStreaming = false;
+	private List<StagedAccount> stagedAccounts = new ArrayList<>();
+	private int numStreamedDone = 0;
+	private boolean bulkCommit = false;
+	private boolean columnar = false;
+	private SplitColumns.Pool columnsPool = new SplitColumns.Pool();
 
+	private static final ProgressReporter NO_PROGRESS = new ProgressReporter() {
+		public void reportProgress(int unitsDone, int totalUnits, int txnsDone) {
+			// nothing to report to
+		} // end reportProgress(int, int, int)
+
+		public boolean isCancelRequested() {
+
+			return false;
+		} // end isCancelRequested()
+	};
+
+	private static final int STOP_CHECK_MASK = 0x3FF; // check for stop every 1024 transactions
 	private static final DateTimeFormatter dateFmt = DateTimeFormatter.ofLocalizedDate(MEDIUM);
 
 	/**
 	 * Sole constructor.
 	 *
-	 * @param decimalWindow
+	 * @param decimalWindow Where to send output; need not be a window
 	 * @param accountBook Moneydance account book
+	 * @param accountIndex Index of the security accounts in the account book
 	 */
-	public DecimalChanger(MoreDecimalWindow decimalWindow, AccountBook accountBook) {
+	public DecimalChanger(MoreDecimalInterface decimalWindow, AccountBook accountBook,
+			SecurityAccountIndex accountIndex) {
 		this.decimalWindow = decimalWindow;
 		this.locale = decimalWindow.getLocale();
 		this.book = accountBook;
 		this.txnSet = accountBook.getTransactionSet();
+		this.accountIndex = accountIndex;
+		this.summaryCache = new AccountSummaryCache(this.txnSet);
 
-	} // end (MoreDecimalWindow, AccountBook) constructor
+	} // end (MoreDecimalInterface, AccountBook, SecurityAccountIndex) constructor
+
+	/**
+	 * Check whether a security could change to a number of decimal places using
+	 * only the cached account summaries, building any that are missing.
+	 *
+	 * @param security
+	 * @param newDecimalPlaces
+	 * @return RESCALE_OK when every account fits, otherwise the reason one won't
+	 */
+	public int checkFeasibility(CurrencyType security, int newDecimalPlaces) {
+		int rightMovePlaces = newDecimalPlaces - security.getDecimalPlaces();
+
+		if (rightMovePlaces != 0) {
+			for (Account securityAcnt : this.accountIndex.getAccounts(security)) {
+				int rescaleResult = this.summaryCache.getSummary(securityAcnt)
+					.checkRescale(rightMovePlaces);
+
+				if (rescaleResult != RESCALE_OK)
+					return rescaleResult;
+			} // end for
+		}
+
+		return RESCALE_OK;
+	} // end checkFeasibility(CurrencyType, int)
 
 	/**
 	 * Change the specified security to a new number of decimal places.
@@ -63,164 +142,1210 @@ public class DecimalChanger {
 	 * @param newDecimalPlaces
 	 */
 	public void changeDecimals(CurrencyType security, int newDecimalPlaces) {
-		this.security = security;
-		this.newDecimalPlaces = newDecimalPlaces;
-		this.rightMovePlaces = newDecimalPlaces - security.getDecimalPlaces();
-		String securityName = security.getName();
-
-		if (this.rightMovePlaces == 0) {
-			// No changes needed. %s already has %d decimal places.
-			writeFormatted("MDC02", securityName, newDecimalPlaces);
-		} else {
+		changeDecimals(Collections.singletonList(new RescaleTarget(security, newDecimalPlaces)));
+
+	} // end changeDecimals(CurrencyType, int)
+
+	/**
+	 * Change each of the specified securities to its new number of decimal
+	 * places, staging them all in a single pass over the investment accounts.
+	 *
+	 * @param rescaleTargets
+	 */
+	public void changeDecimals(List<RescaleTarget> rescaleTargets) {
+		for (RescaleTarget target : rescaleTargets) {
+			target.startStaging();
+
+			if (target.getRightMovePlaces() == 0) {
+				// No changes needed. %s already has %d decimal places.
+				writeFormatted("MDC02", target.getSecurity().getName(),
+					target.getNewDecimalPlaces());
+			} else {
+				this.targets.add(target);
+			}
+		} // end for
+
+		if (!this.targets.isEmpty()) {
+			ChangeMetrics metrics = new ChangeMetrics(ChangeMetrics.STAGE);
+			long findStart = System.nanoTime();
+			List<AccountResult> securityAccounts = findSecurityAccounts();
+			metrics.addPhaseTime(FIND_ACCOUNTS, System.nanoTime() - findStart);
+			this.stopStaging = false;
+			this.acntsVerified.set(0);
+			this.txnsVerified.set(0);
 			boolean allAccountsGood = true;
-			List<Account> invAccounts = MdUtil.getAccounts(this.book, INVESTMENT);
+			boolean canceled = false;
+			boolean stopped = false;
+			long verifyAllocated = ChangeMetrics.threadAllocatedBytes();
+			securityAccounts = verifyAccounts(securityAccounts);
+			this.columnsPool.clear();
+			// verification allocations on this thread are already counted per account
+			verifyAllocated = ChangeMetrics.threadAllocatedBytes() - verifyAllocated;
 
-			for (Account investAcnt : invAccounts) {
-				Account securityAcnt = MdUtil.getSubAccountByName(investAcnt, securityName);
+			for (AccountResult result : securityAccounts) {
+				// merge each account's results in account order
+				writeDiagnostics(result);
+				addAccountMetrics(metrics, result);
 
-				if (securityAcnt != null) {
-					allAccountsGood &= saveAccntToChanges(securityAcnt, investAcnt);
+				if (!this.streaming) {
+					this.changeTxns.addAccount(result.changeTxns);
+				}
+
+				if (result.accountGood) {
+					this.stagedAccounts.add(new StagedAccount(result.securityAccount, result.target,
+						result.fingerprint, result.txnCount));
+					++this.numAcnts;
+					result.target.addAccount(result.txnCount);
+				} else {
+					allAccountsGood = false;
+					canceled |= result.aborted && this.progress.isCancelRequested();
+					stopped |= result.aborted;
 				}
 			} // end for
 
-			if (!allAccountsGood) {
+			if (canceled) {
+				// Staging canceled before all accounts were verified. No changes staged.
+				writeFormatted("MDC09");
+			} else if (stopped && this.stopStaging) {
+				// Stopped verifying other accounts after the first failure.
+				writeFormatted("MDC11");
+			}
+			reportMetrics(metrics, verifyAllocated);
+
+			if (allAccountsGood) {
+				this.stagedStreaming = this.streaming;
+			} else {
 				forgetChanges();
 			}
 		}
 
-	} // end changeDecimals(CurrencyType, int)
+	} // end changeDecimals(List<RescaleTarget>)
 
 	/**
-	 * @param securityAccount
-	 * @param investAccount
-	 * @return true when all transactions can change decimals as requested
+	 * @return A result for each security account holding one of our targets
 	 */
-	private boolean saveAccntToChanges(Account securityAccount, Account investAccount) {
-		boolean accountGood = false;
-		int txnDate = 0;
+	private List<AccountResult> findSecurityAccounts() {
+		List<AccountResult> securityAccounts = new ArrayList<>();
+
+		for (RescaleTarget target : this.targets) {
+			for (Account securityAcnt : this.accountIndex.getAccounts(target.getSecurity())) {
+				securityAccounts.add(new AccountResult(securityAcnt, target,
+					this.diagnosticThreshold));
+			} // end for
+		} // end for
+
+		return securityAccounts;
+	} // end findSecurityAccounts()
+
+	/**
+	 * Verify each security account, concurrently when in parallel mode.
+	 *
+	 * @param securityAccounts
+	 * @return The same results, in the same order, after verification
+	 */
+	private List<AccountResult> verifyAccounts(List<AccountResult> securityAccounts) {
+		int numAccounts = securityAccounts.size();
+
+		if (this.parallel && numAccounts > 1) {
+			List<ForkJoinTask<AccountResult>> tasks = new ArrayList<>(numAccounts);
+
+			for (AccountResult result : securityAccounts) {
+				tasks.add(ForkJoinPool.commonPool().submit(
+					() -> saveAccntToChanges(result, numAccounts)));
+			} // end for
+
+			for (ForkJoinTask<AccountResult> task : tasks) {
+				task.join();
+			} // end for
+		} else {
+			for (AccountResult result : securityAccounts) {
+				saveAccntToChanges(result, numAccounts);
+			} // end for
+		}
+
+		return securityAccounts;
+	} // end verifyAccounts(List<AccountResult>)
+
+	/**
+	 * @return True when verification should stop before it is complete
+	 */
+	private boolean shouldStopStaging() {
+
+		return this.stopStaging || this.progress.isCancelRequested();
+	} // end shouldStopStaging()
+
+	/**
+	 * Verify one security account; may run concurrently with other accounts.
+	 *
+	 * @param result Where to save the changes and messages for this account
+	 * @param numAccounts Total number of accounts being verified
+	 * @return The result, now holding the changes and messages for this account
+	 */
+	private AccountResult saveAccntToChanges(AccountResult result, int numAccounts) {
+		StageAccountEvent event = new StageAccountEvent();
+		event.begin();
+		long startAllocated = ChangeMetrics.threadAllocatedBytes();
+		long startNanos = System.nanoTime();
+		verifyAccount(result);
+		result.verifyNanos = System.nanoTime() - startNanos - result.loadNanos
+			- result.balanceNanos;
+		result.allocatedBytes = ChangeMetrics.threadAllocatedBytes() - startAllocated;
+		event.end();
+
+		if (event.shouldCommit()) {
+			event.account = result.securityAccount.getFullAccountName();
+			event.security = result.target.getSecurity().getName();
+			event.transactions = result.txnCount;
+			event.good = result.accountGood;
+			event.allocatedBytes = result.allocatedBytes;
+			event.loadTxns = result.loadNanos;
+			event.buildBalances = result.balanceNanos;
+			event.verifyAndStage = result.verifyNanos;
+			event.commit();
+		}
+
+		if (result.accountGood) {
+			this.progress.reportProgress(this.acntsVerified.incrementAndGet(), numAccounts,
+				this.txnsVerified.addAndGet(result.txnCount));
+		}
+
+		return result;
+	} // end saveAccntToChanges(AccountResult, int)
+
+	/**
+	 * Verify the transactions of one security account and stage their changes.
+	 *
+	 * @param result Where to save the changes, messages and timings for this account
+	 */
+	private void verifyAccount(AccountResult result) {
+		Account securityAccount = result.securityAccount;
+
+		if (shouldStopStaging()) {
+			result.aborted = true;
+
+			return;
+		}
+		long changeStamp = this.summaryCache.getChangeCount();
+		long loadStart = System.nanoTime();
+		List<AbstractTxn> txnLst = this.txnSet.getTxnsForAccount(securityAccount);
+		AccountStager stager = AccountStager.copy(securityAccount, txnLst);
+		result.loadNanos = System.nanoTime() - loadStart;
+		result.loaded = true;
+		AccountSummary summary = this.summaryCache.getSummary(securityAccount, txnLst,
+			changeStamp);
+		SplitColumns columns = this.columnar ? this.columnsPool.borrow() : null;
+		boolean verified;
 		try {
-			int txnCount = 0;
-			List<AbstractTxn> txnLst = this.txnSet.getTxnsForAccount(securityAccount);
-
-			for (AbstractTxn txn : txnLst) {
-				if (txn instanceof SplitTxn) {
-					txnDate = txn.getDateInt();
-					saveTxnToChange((SplitTxn) txn, securityAccount, txnDate);
-					++txnCount;
-				} else {
-					// WARNING: Found unexpected transaction in %s: %s.
-					writeFormatted("MDC03", securityAccount.getFullAccountName(), txn);
+			verified = stager.stage(summary, result.target.getRightMovePlaces(),
+				result.target.getNewDecimalPlaces(), columns,
+				this.streaming ? null : result.changeTxns, result.diagnostics,
+				this::shouldStopStaging);
+		} finally {
+			if (columns != null) {
+				columns.release();
+				this.columnsPool.giveBack(columns);
+			}
+		}
+		result.balanceNanos = stager.getBalanceNanos();
+		result.fingerprint = stager.getFingerprint();
+		result.txnCount = stager.getTxnCount();
+
+		if (!verified) {
+			if (stager.isAborted()) {
+				result.aborted = true;
+			} else if (this.failFast) {
+				this.stopStaging = true;
+			}
+
+			return;
+		}
+		// Verified and staged %d relevant transactions in %s account.
+		result.diagnostics.record(INFO, "MDC04", result.txnCount,
+			securityAccount.getParentAccount().getAccountName());
+		result.accountGood = true;
+
+	} // end verifyAccount(AccountResult)
+
+	/**
+	 * Format and write the diagnostics kept for one account. A code that occurred
+	 * more than once is shown once, followed by how many more times it occurred.
+	 *
+	 * @param result The results of verifying that account
+	 */
+	private void writeDiagnostics(AccountResult result) {
+		for (Diagnostics.Event event : result.diagnostics.getEvents()) {
+			Object[] args = event.getArgs().clone();
+
+			for (int i = 0; i < args.length; ++i) {
+				if (args[i] instanceof Account) {
+					args[i] = ((Account) args[i]).getFullAccountName();
 				}
 			} // end for
-			// Verified and staged %d relevant transactions in %s account.
-			writeFormatted("MDC04", txnCount, investAccount.getAccountName());
-			++this.numAcnts;
-			accountGood = true;
-		} catch (ArithmeticException e) {
-			// expect exception came from longValueExact call
-			// %s with %d decimal places for security %s on %s.
-			String txnDateStr = MdUtil.convDateIntToLocal(txnDate).format(dateFmt);
-			writeFormatted("MDC05", e.getMessage(), this.newDecimalPlaces,
-				securityAccount.getFullAccountName(), txnDateStr);
+			writeFormatted(event.getCode(), args);
+
+			if (event.getCount() > 1) {
+				// %s occurred %,d more times in %s.
+				writeFormatted("MDC23", event.getCode(), event.getCount() - 1,
+					result.securityAccount.getFullAccountName());
+			}
+		} // end for
+
+	} // end writeDiagnostics(AccountResult)
+
+	/**
+	 * @param metrics Where to add the timings and counts of one account
+	 * @param result The results of verifying that account
+	 */
+	private static void addAccountMetrics(ChangeMetrics metrics, AccountResult result) {
+		metrics.addPhaseTime(LOAD_TXNS, result.loadNanos);
+		metrics.addPhaseTime(BUILD_BALANCES, result.balanceNanos);
+		metrics.addPhaseTime(VERIFY_AND_STAGE, result.verifyNanos);
+		metrics.addAllocated(result.allocatedBytes);
+
+		if (result.loaded) {
+			metrics.addAccount(result.txnCount);
 		}
 
-		return accountGood;
-	} // end saveAccntToChanges(Account, Account)
+	} // end addAccountMetrics(ChangeMetrics, AccountResult)
 
 	/**
-	 * @param sTxn
-	 * @param securityAccount
-	 * @param txnDate
+	 * Finish the metrics, write their summary to the output log and append them
+	 * to the history file, if any.
+	 *
+	 * @param metrics The metrics of the operation just completed
+	 * @param countedBytes Bytes allocated on this thread that were already counted
 	 */
-	private void saveTxnToChange(SplitTxn sTxn, Account securityAccount, int txnDate)
-			throws ArithmeticException {
-		// verify shares fits with new decimals
-		BigDecimal shares = BigDecimal.valueOf(sTxn.getValue());
-		shares = shares.movePointRight(this.rightMovePlaces);
-		long newShares = shares.longValueExact();
+	private void reportMetrics(ChangeMetrics metrics, long countedBytes) {
+		metrics.finish(countedBytes);
 
-		// verify balance fits with new decimals
-		BigDecimal balance = BigDecimal.valueOf(
-			AccountUtil.getBalanceAsOfDate(this.book, securityAccount, txnDate));
-		balance.movePointRight(this.rightMovePlaces).longValueExact();
+		if (metrics.getOperation() == ChangeMetrics.STAGE) {
+			// Stage took %,d ms for %,d transactions in %,d accounts (at most %,d in one); ...
+			writeFormatted("MDC15", metrics.getElapsedMillis(), metrics.getNumTxns(),
+				metrics.getNumAccounts(), metrics.getMaxAccountTxns(),
+				metrics.getPhaseMillis(FIND_ACCOUNTS), metrics.getPhaseMillis(LOAD_TXNS),
+				metrics.getPhaseMillis(BUILD_BALANCES), metrics.getPhaseMillis(VERIFY_AND_STAGE),
+				metrics.getAllocatedKB());
+		} else {
+			// Commit took %,d ms for %,d transactions in %,d syncs; ...
+			writeFormatted("MDC16", metrics.getElapsedMillis(), metrics.getNumTxns(),
+				metrics.getNumSyncs(), metrics.getPhaseMillis(GROUP_BY_PARENT),
+				metrics.getPhaseMillis(EDIT_PARENTS), metrics.getPhaseMillis(SYNC_PARENTS),
+				metrics.getPhaseMillis(PAUSE_BETWEEN_CHUNKS), metrics.getPhaseMillis(REFRESH_ACCOUNTS),
+				metrics.getAllocatedKB());
+		}
 
-		// good to go; save for commit
-		this.changeTxns.add(new TransactionHandler(sTxn, newShares));
+		if (this.metricsHistory != null) {
+			metrics.appendHistory(this.metricsHistory);
+		}
 
-	} // end saveTxnToChange(SplitTxn, Account, int)
+	} // end reportMetrics(ChangeMetrics, long)
 
 	/**
-	 * Commit any changes to Moneydance.
+	 * @param metricsHistory JSON lines file to append metrics to after each
+	 *                       stage and commit, or null for none
 	 */
-	public void commitChanges() {
-		// Change the specified security to the new number of decimal places.
-		this.security.setEditingMode();
-		this.security.setDecimalPlaces(this.newDecimalPlaces);
-		this.security.syncItem();
+	public void setMetricsHistory(Path metricsHistory) {
+		this.metricsHistory = metricsHistory;
 
-		for (TransactionHandler txnHandler : this.changeTxns) {
-			// change this transaction to the new number of decimal places
-			txnHandler.applyUpdate();
-		} // end for
+	} // end setMetricsHistory(Path)
 
-		// Changed a total of %d transaction%s in %d account%s.
-		// Security %s now has %d decimal places
-		int txns = this.changeTxns.size();
-		writeFormatted("MDC08", txns, sUnless1(txns), this.numAcnts, sUnless1(this.numAcnts),
-			this.security.getName(), this.newDecimalPlaces);
+	/**
+	 * @return The cached summaries of the security accounts
+	 */
+	AccountSummaryCache getSummaryCache() {
 
-		forgetChanges();
+		return this.summaryCache;
+	} // end getSummaryCache()
 
-	} // end commitChanges()
+	/**
+	 * @param parallel true to verify security accounts concurrently
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+
+	} // end setParallel(boolean)
 
 	/**
-	 * @param num
-	 * @return the letter 's' unless num is 1
+	 * @param streaming true to keep only a fingerprint of each verified account
+	 *                  and copy its changes again, one account at a time, during
+	 *                  commit, so memory use grows only with the largest account
 	 */
-	private static String sUnless1(int num) {
+	public void setStreaming(boolean streaming) {
+		this.streaming = streaming;
 
-		return num == 1 ? "" : "s";
-	} // end sUnless1(int)
+	} // end setStreaming(boolean)
+
+	/**
+	 * @param columnar true to check the splits of each account over columns
+	 *                 copied from its transactions, in place of walking the
+	 *                 transaction objects
+	 */
+	public void setColumnar(boolean columnar) {
+		this.columnar = columnar;
+
+	} // end setColumnar(boolean)
 
 	/**
-	 * Class to hold on to, and perform, a transaction change (security and share
-	 * balance).
+	 * @param bulkCommit true to defer balance recalculation while committing and
+	 *                   refresh each changed account once at the end
 	 */
-	private static class TransactionHandler {
-		private SplitTxn txn;
-		private long newShares;
+	public void setBulkCommit(boolean bulkCommit) {
+		this.bulkCommit = bulkCommit;
+
+	} // end setBulkCommit(boolean)
+
+	/**
+	 * @param threshold The least severity of per-account diagnostics to show
+	 */
+	public void setDiagnosticThreshold(Diagnostics.Severity threshold) {
+		this.diagnosticThreshold = threshold;
+
+	} // end setDiagnosticThreshold(Severity)
+
+	/**
+	 * @param failFast true to stop verifying other accounts once any account fails
+	 */
+	public void setFailFast(boolean failFast) {
+		this.failFast = failFast;
+
+	} // end setFailFast(boolean)
+
+	/**
+	 * Class to hold the results of verifying one security account until they are
+	 * merged in account order.
+	 */
+	private static class AccountResult {
+		private Account securityAccount;
+		private RescaleTarget target;
+		private StagedChanges changeTxns = new StagedChanges();
+		private Diagnostics diagnostics;
+		private boolean accountGood = false;
+		private boolean aborted = false;
+		private boolean loaded = false;
+		private int txnCount = 0;
+		private long loadNanos = 0;
+		private long balanceNanos = 0;
+		private long verifyNanos = 0;
+		private long allocatedBytes = 0;
+		private long fingerprint = 0;
 
 		/**
 		 * Sole constructor.
 		 *
-		 * @param txn
-		 * @param newShares
+		 * @param securityAccount The security account to verify
+		 * @param target The security's change
+		 * @param threshold The least severity of diagnostics to keep
 		 */
-		public TransactionHandler(SplitTxn txn, long newShares) {
-			this.txn = txn;
-			this.newShares = newShares;
+		public AccountResult(Account securityAccount, RescaleTarget target,
+				Diagnostics.Severity threshold) {
+			this.securityAccount = securityAccount;
+			this.target = target;
+			this.diagnostics = new Diagnostics(threshold);
 
-		} // end (SplitTxn, long) constructor
+		} // end (Account, RescaleTarget, Severity) constructor
 
-		/**
-		 * Change the share balance.
-		 */
-		public void applyUpdate() {
-			ParentTxn pTxn = this.txn.getParentTxn();
-			pTxn.setEditingMode();
-			this.txn.setAmount(this.newShares, this.txn.getAmount());
+	} // end class AccountResult
+
+	/**
+	 * Commit any changes to Moneydance, once sure no staged account changed since
+	 * staging. Splits sharing a parent transaction are changed in a single edit
+	 * and sync of that parent. When canceled, stop after the current parent
+	 * transaction and leave the remaining changes staged for another commit.
+	 *
+	 * @return True when every staged change was committed
+	 */
+	public boolean commitChanges() {
+		if (this.stagedStreaming) {
+
+			return commitStreamed();
+		}
+		ChangeMetrics metrics = new ChangeMetrics(ChangeMetrics.COMMIT);
+
+		if (!this.securityChanged) {
+			if (!stagedAccountsUnchanged(metrics))
+				return false;
+			long groupStart = System.nanoTime();
+			this.changeTxns.groupByParent();
+			metrics.addPhaseTime(GROUP_BY_PARENT, System.nanoTime() - groupStart);
+
+			if (this.journalFolder != null) {
+				try {
+					this.journal = CommitJournal.create(this.journalFolder, this.targets,
+						this.changeTxns);
+				} catch (IOException e) {
+					// Unable to write the commit journal; nothing committed. %s
+					writeFormatted("MDC21", e.toString());
+					e.printStackTrace(System.err);
+
+					return false;
+				}
+			}
+
+			// Change the specified securities to their new number of decimal places.
+			for (RescaleTarget target : this.targets) {
+				target.applyDecimalPlaces();
+			}
+			this.securityChanged = true;
+		}
+		int txns = this.changeTxns.size();
+		// grouping by parent discarded the account ranges, so find the accounts left to change
+		BulkEdit bulkEdit = this.bulkCommit
+			? startBulkEdit(this.changeTxns.getAccounts(this.numCommitted), metrics) : null;
+		boolean finished;
+		try {
+			finished = applyStagedChanges(txns, metrics);
+		} finally {
+			endBulkEdit(bulkEdit, metrics);
+		}
+
+		if (!finished) {
+			// Commit paused after %d of %d transactions. Commit again to apply the rest.
+			writeFormatted("MDC10", this.numCommitted, txns);
+			reportMetrics(metrics, 0);
+
+			return false;
+		}
+		writeCommitSummary(txns);
+		// Grouping splits by parent transaction saved %d of %d transaction syncs.
+		writeFormatted("MDC12", txns - this.numSyncs, txns);
+		reportMetrics(metrics, 0);
+
+		if (this.journal != null) {
+			this.journal = this.journal.finish();
+		}
+		forgetChanges();
+
+		return true;
+	} // end commitChanges()
+
+	/**
+	 * Apply the staged changes not yet committed, a chunk at a time when
+	 * throttled.
+	 *
+	 * @param txns Number of staged changes
+	 * @param metrics Where to add the commit times
+	 * @return False when canceled before all the changes were applied
+	 */
+	private boolean applyStagedChanges(int txns, ChangeMetrics metrics) {
+		while (this.numCommitted < txns) {
+			long chunkStart = System.nanoTime();
+			int chunkLimit = this.throttle == null ? Integer.MAX_VALUE
+				: this.throttle.getChunkSize();
+			int chunkSyncs = 0;
+
+			while (this.numCommitted < txns && chunkSyncs < chunkLimit) {
+				if (this.progress.isCancelRequested())
+					return false;
+				// change this parent's splits to the new number of decimal places
+				this.numCommitted = applyParentUpdates(this.changeTxns, this.numCommitted, metrics);
+				++this.numSyncs;
+				++chunkSyncs;
+
+				if (this.journal != null) {
+					this.journal.markCommitted(this.numCommitted);
+				}
+				this.progress.reportProgress(this.numCommitted, txns, this.numCommitted);
+			} // end while
+
+			if (this.throttle != null && this.numCommitted < txns) {
+				// let the event dispatch thread and Moneydance catch up before the next chunk
+				long pauseStart = System.nanoTime();
+				this.throttle.chunkDone(chunkSyncs, pauseStart - chunkStart);
+				this.throttle.pause();
+				metrics.addPhaseTime(PAUSE_BETWEEN_CHUNKS, System.nanoTime() - pauseStart);
+			}
+		} // end while
+
+		return true;
+	} // end applyStagedChanges(int, ChangeMetrics)
+
+	/**
+	 * @param accounts The distinct accounts about to change
+	 * @param metrics The metrics of the commit
+	 * @return The bulk edit deferring balance recalculation
+	 */
+	private BulkEdit startBulkEdit(Collection<Account> accounts, ChangeMetrics metrics) {
+		BulkEdit bulkEdit = new BulkEdit(this.book, accounts);
+		metrics.setBulkEdit(bulkEdit.isDeferring());
+
+		if (bulkEdit.isDeferring()) {
+			// Deferring balance updates with %s until the commit ends.
+			writeFormatted("MDC36", BulkEdit.getDeferringHook());
+		} else {
+			// This Moneydance can't defer balance updates; committing each change as usual.
+			writeFormatted("MDC33");
+		}
+
+		return bulkEdit;
+	} // end startBulkEdit(Collection<Account>, ChangeMetrics)
+
+	/**
+	 * @param bulkEdit The bulk edit to end, or null for none
+	 * @param metrics Where to add the time spent refreshing accounts
+	 */
+	private static void endBulkEdit(BulkEdit bulkEdit, ChangeMetrics metrics) {
+		if (bulkEdit != null) {
+			long refreshStart = System.nanoTime();
+			bulkEdit.end();
+			metrics.addPhaseTime(REFRESH_ACCOUNTS, System.nanoTime() - refreshStart);
+		}
+
+	} // end endBulkEdit(BulkEdit, ChangeMetrics)
+
+	/**
+	 * Commit the changes verified in streaming mode. First walk each account again
+	 * to make sure its fingerprint still matches, committing nothing if any
+	 * account changed, and journal every account's changes a single account at a
+	 * time. Then copy each account's splits once more and change them a parent
+	 * transaction at a time, marking the journal as each parent is synced, so an
+	 * interrupted commit can be resumed or rolled back like any other. When
+	 * canceled, stop after the current account and leave the remaining accounts
+	 * for another commit.
+	 *
+	 * @return True when every staged account was committed
+	 */
+	private boolean commitStreamed() {
+		ChangeMetrics metrics = new ChangeMetrics(ChangeMetrics.COMMIT);
+		int numAccounts = this.stagedAccounts.size();
+		int txns = 0;
+
+		for (StagedAccount streamed : this.stagedAccounts) {
+			txns += streamed.getTxnCount();
+		}
+
+		if (!this.securityChanged) {
+			if (!stagedAccountsUnchanged(metrics))
+				return false;
+
+			if (this.journalFolder != null) {
+				try {
+					this.journal = CommitJournal.create(this.journalFolder, this.targets,
+						numAccounts, a -> copyStreamedChanges(this.stagedAccounts.get(a)));
+				} catch (IOException e) {
+					// Unable to write the commit journal; nothing committed. %s
+					writeFormatted("MDC21", e.toString());
+					e.printStackTrace(System.err);
+
+					return false;
+				}
+			}
+
+			// Change the specified securities to their new number of decimal places.
+			for (RescaleTarget target : this.targets) {
+				target.applyDecimalPlaces();
+			}
+			this.securityChanged = true;
+		}
+		BulkEdit bulkEdit = null;
+
+		if (this.bulkCommit) {
+			List<Account> accounts = new ArrayList<>(numAccounts - this.numStreamedDone);
+
+			for (int a = this.numStreamedDone; a < numAccounts; ++a) {
+				accounts.add(this.stagedAccounts.get(a).getSecurityAccount());
+			}
+			bulkEdit = startBulkEdit(accounts, metrics);
+		}
+		boolean finished;
+		try {
+			finished = applyStreamedChanges(txns, metrics);
+		} finally {
+			endBulkEdit(bulkEdit, metrics);
+		}
+
+		if (!finished) {
+			// Commit paused after %d of %d transactions. Commit again to apply the rest.
+			writeFormatted("MDC10", this.numCommitted, txns);
+			reportMetrics(metrics, 0);
+
+			return false;
+		}
+		writeCommitSummary(txns);
+		// Grouping splits by parent transaction saved %d of %d transaction syncs.
+		writeFormatted("MDC12", txns - this.numSyncs, txns);
+		reportMetrics(metrics, 0);
+
+		if (this.journal != null) {
+			this.journal = this.journal.finish();
+		}
+		forgetChanges();
+
+		return true;
+	} // end commitStreamed()
+
+	/**
+	 * Copy each streamed account's splits not yet committed and change them a
+	 * parent transaction at a time, a chunk at a time when throttled.
+	 *
+	 * @param txns Number of transactions to change in all the streamed accounts
+	 * @param metrics Where to add the commit times
+	 * @return False when canceled before all the accounts were committed
+	 */
+	private boolean applyStreamedChanges(int txns, ChangeMetrics metrics) {
+		int numAccounts = this.stagedAccounts.size();
+		long chunkStart = System.nanoTime();
+		int chunkSyncs = 0;
+
+		while (this.numStreamedDone < numAccounts) {
+			if (this.progress.isCancelRequested())
+				return false;
+			long groupStart = System.nanoTime();
+			StagedChanges acntChanges = copyStreamedChanges(
+				this.stagedAccounts.get(this.numStreamedDone));
+			metrics.addPhaseTime(GROUP_BY_PARENT, System.nanoTime() - groupStart);
+			int i = 0;
+
+			while (i < acntChanges.size()) {
+				// change this parent's splits to the new number of decimal places
+				int end = applyParentUpdates(acntChanges, i, metrics);
+				this.numCommitted += end - i;
+				++this.numSyncs;
+				i = end;
+
+				if (this.journal != null) {
+					this.journal.markCommitted(this.numCommitted);
+				}
+
+				if (this.throttle != null && ++chunkSyncs >= this.throttle.getChunkSize()) {
+					// let the event dispatch thread and Moneydance catch up
+					long pauseStart = System.nanoTime();
+					this.throttle.chunkDone(chunkSyncs, pauseStart - chunkStart);
+					this.throttle.pause();
+					chunkStart = System.nanoTime();
+					metrics.addPhaseTime(PAUSE_BETWEEN_CHUNKS, chunkStart - pauseStart);
+					chunkSyncs = 0;
+				}
+			} // end while
+			++this.numStreamedDone;
+			this.progress.reportProgress(this.numCommitted, txns, this.numCommitted);
+		} // end while
+
+		return true;
+	} // end applyStreamedChanges(int, ChangeMetrics)
+
+	/**
+	 * Copy a streamed account's splits and their new shares before any is
+	 * changed, since syncing a changed parent can modify the live transaction
+	 * list of the account.
+	 *
+	 * @param streamed A verified account
+	 * @return The account's changes, grouped by parent transaction
+	 */
+	private StagedChanges copyStreamedChanges(StagedAccount streamed) {
+		int rightMovePlaces = streamed.getTarget().getRightMovePlaces();
+		StagedChanges acntChanges = new StagedChanges();
+
+		for (AbstractTxn txn : this.txnSet.getTxnsForAccount(streamed.getSecurityAccount())) {
+			if (txn instanceof SplitTxn) {
+				acntChanges.add((SplitTxn) txn, FixedPointScaler.rescale(txn.getValue(),
+					rightMovePlaces));
+			}
+		} // end for
+		acntChanges.groupByParent();
+
+		return acntChanges;
+	} // end copyStreamedChanges(StagedAccount)
+
+	/**
+	 * Make sure no staged account changed since it was verified before changing
+	 * anything, reporting the first that did.
+	 *
+	 * @param metrics Where to add the time spent loading transactions
+	 * @return True when every staged account is unchanged
+	 */
+	private boolean stagedAccountsUnchanged(ChangeMetrics metrics) {
+		long loadStart = System.nanoTime();
+		StagedAccount changed = findChangedAccount();
+		metrics.addPhaseTime(LOAD_TXNS, System.nanoTime() - loadStart);
+
+		if (changed != null) {
+			// %s changed since staging; nothing committed. Stage again.
+			writeFormatted("MDC32", changed.getSecurityAccount().getFullAccountName());
+			reportMetrics(metrics, 0);
+
+			return false;
+		}
+
+		return true;
+	} // end stagedAccountsUnchanged(ChangeMetrics)
+
+	/**
+	 * @return The first staged account whose splits changed since it was
+	 *         verified, or null when none did
+	 */
+	private StagedAccount findChangedAccount() {
+		for (StagedAccount staged : this.stagedAccounts) {
+			if (!staged.isUnchanged(this.txnSet))
+				return staged;
+		}
+
+		return null;
+	} // end findChangedAccount()
+
+	/**
+	 * Write what a completed commit changed.
+	 *
+	 * @param txns Number of transactions changed
+	 */
+	private void writeCommitSummary(int txns) {
+		if (this.targets.size() == 1) {
+			RescaleTarget target = this.targets.get(0);
+			// Changed a total of %d transaction%s in %d account%s.
+			// Security %s now has %d decimal places
+			writeFormatted("MDC08", txns, sUnless1(txns), this.numAcnts, sUnless1(this.numAcnts),
+				target.getSecurity().getName(), target.getNewDecimalPlaces());
+		} else {
+			for (RescaleTarget target : this.targets) {
+				int tgtTxns = target.getNumTxns();
+				int tgtAcnts = target.getNumAccounts();
+				// %s now has %d decimal places; changed %d transaction%s in %d account%s.
+				writeFormatted("MDC13", target.getSecurity().getName(),
+					target.getNewDecimalPlaces(), tgtTxns, sUnless1(tgtTxns), tgtAcnts,
+					sUnless1(tgtAcnts));
+			} // end for
+			int numTargets = this.targets.size();
+			// Changed a total of %d transaction%s in %d account%s for %d securit%s.
+			writeFormatted("MDC14", txns, sUnless1(txns), this.numAcnts, sUnless1(this.numAcnts),
+				numTargets, numTargets == 1 ? "y" : "ies");
+		}
+
+	} // end writeCommitSummary(int)
+
+	/**
+	 * Change all the adjacent staged splits sharing one parent transaction.
+	 *
+	 * @param changes Staged changes, grouped by parent transaction
+	 * @param start Index of the first staged change for the parent
+	 * @param metrics Where to add the edit and sync times
+	 * @return Index of the first staged change for the next parent
+	 */
+	private static int applyParentUpdates(StagedChanges changes, int start,
+			ChangeMetrics metrics) {
+		long editStart = System.nanoTime();
+		ParentTxn pTxn = changes.getTxn(start).getParentTxn();
+		pTxn.setEditingMode();
+		int end = start;
+
+		do {
+			SplitTxn sTxn = changes.getTxn(end);
+			sTxn.setAmount(changes.getNewShares(end++), sTxn.getAmount());
+		} while (end < changes.size() && changes.getTxn(end).getParentTxn() == pTxn);
+		long syncStart = System.nanoTime();
+		pTxn.syncItem();
+		metrics.addPhaseTime(EDIT_PARENTS, syncStart - editStart);
+		metrics.addPhaseTime(SYNC_PARENTS, System.nanoTime() - syncStart);
+		metrics.addSync(end - start);
+
+		return end;
+	} // end applyParentUpdates(StagedChanges, int, ChangeMetrics)
+
+	/**
+	 * Stream the staged changes to a change set file, after making sure none of
+	 * their accounts changed since staging.
+	 *
+	 * @param file Where to write the change set
+	 */
+	public void exportChanges(Path file) {
+		if (this.securityChanged || this.changeTxns.isEmpty()) {
+			// Nothing staged to export; stage changes first.
+			writeFormatted("MDC24");
+
+			return;
+		}
+		int txns = this.changeTxns.size();
+		StagedAccount changed = findChangedAccount();
+
+		if (changed != null) {
+			// %s changed after staging; stage again before exporting.
+			writeFormatted("MDC25", changed.getSecurityAccount().getFullAccountName());
+
+			return;
+		}
+		try {
+			ChangeSetFile.write(file, this.targets, this.stagedAccounts, this.changeTxns);
+			this.progress.reportProgress(txns, txns, txns);
+			// Exported %,d staged transaction%s in %,d account%s to %s.
+			writeFormatted("MDC26", txns, sUnless1(txns), this.numAcnts, sUnless1(this.numAcnts),
+				file);
+		} catch (IOException e) {
+			// Unable to read or write the change set file. %s
+			writeFormatted("MDC27", e.toString());
+			e.printStackTrace(System.err);
+		}
+
+	} // end exportChanges(Path)
+
+	/**
+	 * Stage the changes in a change set file, replacing any staged now unless a
+	 * commit of them is paused. Nothing is staged unless every security still has
+	 * its exported decimal places and every account holds the same transactions
+	 * it did at export.
+	 *
+	 * @param file The change set to import
+	 */
+	public void importChanges(Path file) {
+		if (this.securityChanged) {
+			// A commit is paused; commit again to apply the rest before importing.
+			writeFormatted("MDC35");
+
+			return;
+		}
+		forgetChanges();
+
+		try (ChangeSetFile changeSet = ChangeSetFile.open(file)) {
+			if (!importTargets(changeSet))
+				return;
+			int txns = changeSet.getNumChanges();
+			int done = 0;
+			int numStale = 0;
+			String staleAcnt = null;
+			int staleDate = 0;
+			String changedAcnt = null;
+
+			while (changeSet.nextAccount()) {
+				int acntTxns = 0;
+
+				while (changeSet.nextChange()) {
+					SplitTxn sTxn = findExported(changeSet);
+
+					if (sTxn == null) {
+						if (numStale++ == 0) {
+							staleAcnt = changeSet.getAccountName();
+							staleDate = changeSet.getDateInt();
+						}
+					} else if (numStale == 0) {
+						this.changeTxns.add(sTxn, changeSet.getNewShares());
+						++acntTxns;
+					}
+
+					if ((++done & STOP_CHECK_MASK) == 0) {
+						if (this.progress.isCancelRequested()) {
+							forgetChanges();
+							// Staging canceled before all accounts were verified. No changes staged.
+							writeFormatted("MDC09");
+
+							return;
+						}
+						this.progress.reportProgress(done, txns, done);
+					}
+				} // end while
+				this.changeTxns.endAccount();
+
+				if (numStale == 0 && changedAcnt == null) {
+					RescaleTarget target = this.targets.get(changeSet.getTargetOrdinal());
+					Account account = this.book.getAccountByUUID(changeSet.getAccountId());
+					StagedAccount staged = account == null ? null : new StagedAccount(account,
+						target, changeSet.getFingerprint(), changeSet.getSplitCount());
+
+					if (staged != null && staged.isUnchanged(this.txnSet)) {
+						this.stagedAccounts.add(staged);
+						target.addAccount(acntTxns);
+						++this.numAcnts;
+					} else {
+						// splits were added, removed or changed in this account since export
+						changedAcnt = changeSet.getAccountName();
+					}
+				}
+			} // end while
+			this.progress.reportProgress(txns, txns, done);
+
+			if (numStale > 0) {
+				forgetChanges();
+				// %,d exported transaction%s changed since export, the first in %s on %s; ...
+				writeFormatted("MDC30", numStale, sUnless1(numStale), staleAcnt,
+					MdUtil.convDateIntToLocal(staleDate).format(dateFmt));
+			} else if (changedAcnt != null) {
+				forgetChanges();
+				// %s holds different transactions than it did at export; nothing imported.
+				writeFormatted("MDC34", changedAcnt);
+			} else {
+				String exported = Instant.ofEpochMilli(changeSet.getExportTime())
+					.atZone(ZoneId.systemDefault()).toLocalDate().format(dateFmt);
+				// Imported %,d staged transaction%s in %,d account%s from %s, exported on %s.
+				writeFormatted("MDC31", done, sUnless1(done), this.numAcnts,
+					sUnless1(this.numAcnts), file, exported);
+			}
+		} catch (IOException e) {
+			forgetChanges();
+			// Unable to read or write the change set file. %s
+			writeFormatted("MDC27", e.toString());
+			e.printStackTrace(System.err);
+		}
+
+	} // end importChanges(Path)
+
+	/**
+	 * Add a target for each security in a change set.
+	 *
+	 * @param changeSet
+	 * @return True when every security still has its exported decimal places
+	 */
+	private boolean importTargets(ChangeSetFile changeSet) {
+		for (int t = 0; t < changeSet.getNumTargets(); ++t) {
+			CurrencyType security = this.book.getCurrencies()
+				.getCurrencyByUUID(changeSet.getSecurityId(t));
+
+			if (security == null) {
+				// Security %s in the change set no longer exists; nothing imported.
+				writeFormatted("MDC28", changeSet.getSecurityId(t));
+				forgetChanges();
+
+				return false;
+			}
+
+			if (security.getDecimalPlaces() != changeSet.getOldDecimals(t)) {
+				// %s now has %d decimal places, not the %d it had when exported; ...
+				writeFormatted("MDC29", security.getName(), security.getDecimalPlaces(),
+					changeSet.getOldDecimals(t));
+				forgetChanges();
+
+				return false;
+			}
+			RescaleTarget target = new RescaleTarget(security, changeSet.getNewDecimals(t));
+			target.startStaging();
+			this.targets.add(target);
+		} // end for
+
+		return true;
+	} // end importTargets(ChangeSetFile)
+
+	/**
+	 * @param changeSet A change set positioned at one of its changes
+	 * @return The split changed, or null when it no longer matches the export
+	 */
+	private SplitTxn findExported(ChangeSetFile changeSet) {
+		AbstractTxn txn = this.txnSet.getTxnByID(changeSet.getParentId());
+
+		if (txn instanceof ParentTxn) {
+			ParentTxn pTxn = (ParentTxn) txn;
+			int splitIndex = changeSet.getSplitIndex();
+
+			if (splitIndex < pTxn.getSplitCount()) {
+				SplitTxn sTxn = pTxn.getSplit(splitIndex);
+
+				if (sTxn.getAccount().getUUID().equals(changeSet.getAccountId())
+						&& sTxn.getDateInt() == changeSet.getDateInt()
+						&& sTxn.getValue() == changeSet.getOldShares())
+					return sTxn;
+			}
+		}
+
+		return null;
+	} // end findExported(ChangeSetFile)
+
+	/**
+	 * @return The securities staged to change
+	 */
+	public List<RescaleTarget> getTargets() {
+
+		return Collections.unmodifiableList(this.targets);
+	} // end getTargets()
+
+	/**
+	 * @return The staged changes, in account order until a commit starts
+	 */
+	StagedChanges getStagedChanges() {
+
+		return this.changeTxns;
+	} // end getStagedChanges()
+
+	/**
+	 * @return The verified accounts of the securities staged to change
+	 */
+	List<StagedAccount> getStagedAccounts() {
+
+		return Collections.unmodifiableList(this.stagedAccounts);
+	} // end getStagedAccounts()
+
+	/**
+	 * Resume or roll back a commit that was interrupted before it finished.
+	 *
+	 * @param interrupted The journal of the interrupted commit
+	 * @param rollBack true to restore the original values, false to finish the commit
+	 */
+	public void recoverCommit(CommitJournal interrupted, boolean rollBack) {
+		int entries = interrupted.getNumEntries();
+		// entries are absolute values, so starting from a lagging committed count is safe
+		int start = rollBack ? 0 : interrupted.getNumCommitted();
+		int changed = 0;
+		int syncs = 0;
+
+		if (!rollBack) {
+			applyJournalDecimals(interrupted, false);
+		}
+		int entry = start;
+
+		while (entry < entries) {
+			if (this.progress.isCancelRequested()) {
+				// Recovery stopped; the journal is kept so the commit can be resumed ...
+				writeFormatted("MDC22");
+				interrupted.close();
+
+				return;
+			}
+			int parentOrdinal = interrupted.getParentOrdinal(entry);
+			int end = entry + 1;
+
+			while (end < entries && interrupted.getParentOrdinal(end) == parentOrdinal) {
+				++end;
+			}
+			int parentChanges = applyJournalParent(interrupted, parentOrdinal, entry, end,
+				rollBack);
+
+			if (parentChanges > 0) {
+				changed += parentChanges;
+				++syncs;
+			}
+			if (!rollBack) {
+				interrupted.markCommitted(end);
+			}
+			entry = end;
+			this.progress.reportProgress(entry - start, entries - start, entry - start);
+		} // end while
+
+		if (rollBack) {
+			applyJournalDecimals(interrupted, true);
+			// Rolled back the interrupted commit; restored %d transaction%s in %d sync%s ...
+			writeFormatted("MDC19", changed, sUnless1(changed), syncs, sUnless1(syncs));
+		} else {
+			// Resumed the interrupted commit; changed %d more transaction%s in %d sync%s.
+			writeFormatted("MDC18", changed, sUnless1(changed), syncs, sUnless1(syncs));
+		}
+		interrupted.finish();
+
+	} // end recoverCommit(CommitJournal, boolean)
+
+	/**
+	 * @param numCommitted Number of journal entries known to be applied
+	 * @param numEntries Number of journal entries
+	 */
+	public void writeRecoveryFound(int numCommitted, int numEntries) {
+		// Found a commit interrupted after %,d of %,d transactions.
+		writeFormatted("MDC17", numCommitted, numEntries);
+
+	} // end writeRecoveryFound(int, int)
+
+	/**
+	 * Set each journaled security to its old or new number of decimal places.
+	 *
+	 * @param interrupted The journal of the interrupted commit
+	 * @param old true for the decimal places before the commit
+	 */
+	private void applyJournalDecimals(CommitJournal interrupted, boolean old) {
+		for (int t = 0; t < interrupted.getNumTargets(); ++t) {
+			CurrencyType security = this.book.getCurrencies()
+				.getCurrencyByUUID(interrupted.getSecurityId(t));
+			int decimals = old ? interrupted.getOldDecimals(t) : interrupted.getNewDecimals(t);
+
+			if (security == null) {
+				// WARNING: Journaled item %s no longer exists; skipped.
+				writeFormatted("MDC20", interrupted.getSecurityId(t));
+			} else if (security.getDecimalPlaces() != decimals) {
+				security.setEditingMode();
+				security.setDecimalPlaces(decimals);
+				security.syncItem();
+			}
+		} // end for
+
+	} // end applyJournalDecimals(CommitJournal, boolean)
+
+	/**
+	 * Set the journaled splits of one parent transaction to their old or new
+	 * shares, syncing the parent only when some split differs.
+	 *
+	 * @param interrupted The journal of the interrupted commit
+	 * @param parentOrdinal Ordinal of the parent transaction in the journal
+	 * @param start Index of the parent's first journal entry
+	 * @param end Index after the parent's last journal entry
+	 * @param old true for the shares before the commit
+	 * @return Number of splits changed
+	 */
+	private int applyJournalParent(CommitJournal interrupted, int parentOrdinal, int start,
+			int end, boolean old) {
+		String parentId = interrupted.getParentId(parentOrdinal);
+		AbstractTxn txn = this.txnSet.getTxnByID(parentId);
+
+		if (!(txn instanceof ParentTxn)) {
+			// WARNING: Journaled item %s no longer exists; skipped.
+			writeFormatted("MDC20", parentId);
+
+			return 0;
+		}
+		ParentTxn pTxn = (ParentTxn) txn;
+		int numChanged = 0;
+
+		for (int entry = start; entry < end; ++entry) {
+			int splitIndex = interrupted.getSplitIndex(entry);
+
+			if (splitIndex < pTxn.getSplitCount()) {
+				SplitTxn sTxn = pTxn.getSplit(splitIndex);
+				long shares = old ? interrupted.getOldShares(entry)
+					: interrupted.getNewShares(entry);
+
+				if (sTxn.getValue() != shares) {
+					if (numChanged++ == 0) {
+						pTxn.setEditingMode();
+					}
+					sTxn.setAmount(shares, sTxn.getAmount());
+				}
+			}
+		} // end for
+
+		if (numChanged > 0) {
 			pTxn.syncItem();
+		}
+
+		return numChanged;
+	} // end applyJournalParent(CommitJournal, int, int, int, boolean)
+
+	/**
+	 * @param throttle How to split commits into chunks with pauses between them,
+	 *                 or null to commit in one continuous pass
+	 */
+	public void setCommitThrottle(CommitThrottle throttle) {
+		this.throttle = throttle;
+
+	} // end setCommitThrottle(CommitThrottle)
 
-		} // end applyUpdate()
+	/**
+	 * @param journalFolder Where to keep the write-ahead journal of each commit,
+	 *                      or null for no journal
+	 */
+	public void setJournalFolder(Path journalFolder) {
+		this.journalFolder = journalFolder;
 
-	} // end class TransactionHandler
+	} // end setJournalFolder(Path)
+
+	/**
+	 * @param progress Where to report progress and check for cancel requests
+	 */
+	public void setProgressReporter(ProgressReporter progress) {
+		this.progress = progress == null ? NO_PROGRESS : progress;
+
+	} // end setProgressReporter(ProgressReporter)
+
+	/**
+	 * @param num
+	 * @return the letter 's' unless num is 1
+	 */
+	private static String sUnless1(int num) {
+
+		return num == 1 ? "" : "s";
+	} // end sUnless1(int)
 
 	/**
 	 * Clear out any pending changes.
 	 */
 	public void forgetChanges() {
+		this.targets.clear();
 		this.numAcnts = 0;
 		this.changeTxns.clear();
+		this.securityChanged = false;
+		this.numCommitted = 0;
+		this.numSyncs = 0;
+		this.stagedAccounts.clear();
+		this.stagedStreaming = false;
+		this.numStreamedDone = 0;
 
 	} // end forgetChanges()
 
@@ -232,13 +1357,26 @@ public class DecimalChanger {
 		return (this.numAcnts != 0) || !this.changeTxns.isEmpty();
 	} // end isModified()
 
+	/**
+	 * @return True when a commit was paused before all changes were applied
+	 */
+	public boolean isCommitPaused() {
+
+		return this.securityChanged;
+	} // end isCommitPaused()
+
 	/**
 	 * Release any resources we acquired.
 	 *
 	 * @return null
 	 */
 	public DecimalChanger releaseResources() {
-		// nothing to release
+		this.summaryCache = this.summaryCache.releaseResources();
+
+		if (this.journal != null) {
+			// a paused commit stays recoverable
+			this.journal = this.journal.close();
+		}
 
 		return null;
 	} // end releaseResources()
@@ -246,7 +1384,7 @@ public class DecimalChanger {
 	/**
 	 * @return Our message bundle
 	 */
-	private ResourceBundle getMsgBundle() {
+	private synchronized ResourceBundle getMsgBundle() {
 		if (this.msgBundle == null) {
 			this.msgBundle = MdUtil.getMsgBundle(baseMessageBundleName, this.locale);
 		}
@@ -273,8 +1411,18 @@ public class DecimalChanger {
 	 * @param params Optional array of parameters for the message
 	 */
 	private void writeFormatted(String key, Object... params) {
-		this.decimalWindow.addText(String.format(this.locale, retrieveMessage(key), params));
+		this.decimalWindow.addText(formatMessage(key, params));
 
 	} // end writeFormatted(String, Object...)
 
+	/**
+	 * @param key The resource bundle key (or message)
+	 * @param params Optional array of parameters for the message
+	 * @return The formatted message
+	 */
+	private String formatMessage(String key, Object... params) {
+
+		return String.format(this.locale, retrieveMessage(key), params);
+	} // end formatMessage(String, Object...)
+
 } // end class DecimalChanger
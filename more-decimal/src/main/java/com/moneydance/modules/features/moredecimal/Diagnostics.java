@@ -0,0 +1,113 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.moneydance.modules.features.moredecimal;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+
+/**
+ * Diagnostics recorded while verifying one account. Each event is kept as its
+ * message code and unformatted arguments, repeats of a code are counted
+ * instead of kept, and events below the severity threshold are dropped, so
+ * text is only formatted for the events that are actually shown.
+ */
+public class Diagnostics {
+	private Severity threshold;
+	private LinkedHashMap<String, Event> events = new LinkedHashMap<>(4);
+
+	/**
+	 * How much a diagnostic matters, in increasing order.
+	 */
+	public enum Severity {
+		INFO, WARNING, ERROR
+	} // end enum Severity
+
+	/**
+	 * The first occurrence of one message code and how many times it occurred.
+	 */
+	public static class Event {
+		private Severity severity;
+		private String code;
+		private Object[] args;
+		private int count = 1;
+
+		/**
+		 * Sole constructor.
+		 *
+		 * @param severity
+		 * @param code The resource bundle key of the message
+		 * @param args Unformatted arguments of the first occurrence
+		 */
+		Event(Severity severity, String code, Object[] args) {
+			this.severity = severity;
+			this.code = code;
+			this.args = args;
+
+		} // end (Severity, String, Object[]) constructor
+
+		public Severity getSeverity() {
+
+			return this.severity;
+		} // end getSeverity()
+
+		public String getCode() {
+
+			return this.code;
+		} // end getCode()
+
+		public Object[] getArgs() {
+
+			return this.args;
+		} // end getArgs()
+
+		/**
+		 * @return Number of times this code was recorded
+		 */
+		public int getCount() {
+
+			return this.count;
+		} // end getCount()
+
+	} // end class Event
+
+	/**
+	 * Sole constructor.
+	 *
+	 * @param threshold The least severity to keep
+	 */
+	public Diagnostics(Severity threshold) {
+		this.threshold = threshold;
+
+	} // end (Severity) constructor
+
+	/**
+	 * Record a diagnostic without formatting it.
+	 *
+	 * @param severity
+	 * @param code The resource bundle key of the message
+	 * @param args Arguments for the message; only those of the first
+	 *             occurrence of each code are kept
+	 */
+	public void record(Severity severity, String code, Object... args) {
+		if (severity.compareTo(this.threshold) < 0)
+			return;
+		Event event = this.events.get(code);
+
+		if (event == null) {
+			this.events.put(code, new Event(severity, code, args));
+		} else {
+			++event.count;
+		}
+
+	} // end record(Severity, String, Object...)
+
+	/**
+	 * @return The events kept, in the order each code first occurred
+	 */
+	public Collection<Event> getEvents() {
+
+		return this.events.values();
+	} // end getEvents()
+
+} // end class Diagnostics
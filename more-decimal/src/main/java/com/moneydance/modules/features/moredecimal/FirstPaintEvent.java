@@ -0,0 +1,22 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.moneydance.modules.features.moredecimal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event spanning a window's creation to its first paint.
+ */
+@Name("com.moneydance.moredecimal.FirstPaint")
+@Label("More Decimal First Paint")
+@Category("More Decimal")
+@Description("From creating a window to painting it the first time")
+class FirstPaintEvent extends jdk.jfr.Event {
+	@Label("Window")
+	String window;
+
+} // end class FirstPaintEvent
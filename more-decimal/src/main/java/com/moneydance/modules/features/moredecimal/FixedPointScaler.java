@@ -0,0 +1,162 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.moneydance.modules.features.moredecimal;
+
+/**
+ * Utility to move the decimal point of fixed-point long values using only
+ * primitive arithmetic. Results are the same as BigDecimal.movePointRight
+ * followed by longValueExact, but reported as a result code instead of an
+ * exception.
+ */
+public final class FixedPointScaler {
+	/** The value can be rescaled exactly */
+	public static final int RESCALE_OK = 0;
+
+	/** The rescaled value would not fit in a long */
+	public static final int RESCALE_OVERFLOW = 1;
+
+	/** The rescaled value would have a fractional part */
+	public static final int RESCALE_ROUNDING = 2;
+
+	/** The most places the decimal point of a nonzero long can move */
+	public static final int MAX_PLACES = 18;
+
+	private static final long[] POWERS_OF_TEN = {
+		1L,
+		10L,
+		100L,
+		1_000L,
+		10_000L,
+		100_000L,
+		1_000_000L,
+		10_000_000L,
+		100_000_000L,
+		1_000_000_000L,
+		10_000_000_000L,
+		100_000_000_000L,
+		1_000_000_000_000L,
+		10_000_000_000_000L,
+		100_000_000_000_000L,
+		1_000_000_000_000_000L,
+		10_000_000_000_000_000L,
+		100_000_000_000_000_000L,
+		1_000_000_000_000_000_000L
+	};
+
+	/**
+	 * No instances needed.
+	 */
+	private FixedPointScaler() {
+	} // end constructor
+
+	/**
+	 * @param value Fixed-point value
+	 * @param rightMovePlaces Number of places to move the decimal point right
+	 *                        (negative to move left)
+	 * @return One of RESCALE_OK, RESCALE_OVERFLOW or RESCALE_ROUNDING
+	 */
+	public static int checkRescale(long value, int rightMovePlaces) {
+		if (value == 0 || rightMovePlaces == 0)
+			return RESCALE_OK;
+
+		if (rightMovePlaces > 0) {
+			if (rightMovePlaces >= POWERS_OF_TEN.length)
+				return RESCALE_OVERFLOW;
+			long power = POWERS_OF_TEN[rightMovePlaces];
+			long high = Math.multiplyHigh(value, power);
+			long low = value * power;
+
+			// the product fits when the high half is just the sign extension of the low
+			return high == (low >> 63) ? RESCALE_OK : RESCALE_OVERFLOW;
+		} else {
+			if (rightMovePlaces <= -POWERS_OF_TEN.length)
+				return RESCALE_ROUNDING;
+
+			return value % POWERS_OF_TEN[-rightMovePlaces] == 0 ? RESCALE_OK : RESCALE_ROUNDING;
+		}
+	} // end checkRescale(long, int)
+
+	/**
+	 * Only valid when checkRescale returns RESCALE_OK for the same arguments.
+	 *
+	 * @param value Fixed-point value
+	 * @param rightMovePlaces Number of places to move the decimal point right
+	 *                        (negative to move left)
+	 * @return The rescaled value
+	 */
+	public static long rescale(long value, int rightMovePlaces) {
+		if (value == 0 || rightMovePlaces == 0)
+			return value;
+
+		return rightMovePlaces > 0 ? value * POWERS_OF_TEN[rightMovePlaces]
+			: value / POWERS_OF_TEN[-rightMovePlaces];
+	} // end rescale(long, int)
+
+	/**
+	 * @param places Number of decimal places, from zero through MAX_PLACES
+	 * @return Ten raised to that power
+	 */
+	public static long powerOfTen(int places) {
+
+		return POWERS_OF_TEN[places];
+	} // end powerOfTen(int)
+
+	/**
+	 * @param value Fixed-point value
+	 * @return The absolute value, with Long.MIN_VALUE saturated to Long.MAX_VALUE
+	 */
+	public static long magnitude(long value) {
+
+		return value == Long.MIN_VALUE ? Long.MAX_VALUE : Math.abs(value);
+	} // end magnitude(long)
+
+	/**
+	 * @param value Fixed-point value
+	 * @param limit The most trailing zeros of interest
+	 * @return Number of trailing decimal zeros in the value, at most limit
+	 */
+	public static int trailingZeros(long value, int limit) {
+		if (value == 0)
+			return limit;
+		int zeros = 0;
+
+		while (zeros < limit && value % 10 == 0) {
+			value /= 10;
+			++zeros;
+		}
+
+		return zeros;
+	} // end trailingZeros(long, int)
+
+	/**
+	 * @param maxAbs The largest magnitude of any value to move
+	 * @return The most places the decimal point of every value can move right
+	 */
+	public static int maxRightMovePlaces(long maxAbs) {
+		int places = 0;
+
+		while (places + 1 < POWERS_OF_TEN.length
+				&& checkRescale(maxAbs, places + 1) == RESCALE_OK) {
+			++places;
+		}
+
+		return places;
+	} // end maxRightMovePlaces(long)
+
+	/**
+	 * @param result A result code from checkRescale
+	 * @return The message BigDecimal would have used for this result
+	 */
+	public static String describe(int result) {
+		switch (result) {
+		case RESCALE_OVERFLOW:
+			return "Overflow";
+		case RESCALE_ROUNDING:
+			return "Rounding necessary";
+		default:
+			return "OK";
+		}
+	} // end describe(int)
+
+} // end class FixedPointScaler
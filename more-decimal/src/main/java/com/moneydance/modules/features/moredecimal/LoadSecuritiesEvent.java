@@ -0,0 +1,22 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.moneydance.modules.features.moredecimal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for the first load of the securities to choose from.
+ */
+@Name("com.moneydance.moredecimal.LoadSecurities")
+@Label("More Decimal Load Securities")
+@Category("More Decimal")
+@Description("Finding and sorting the securities shown for the first time")
+class LoadSecuritiesEvent extends jdk.jfr.Event {
+	@Label("Securities")
+	int securities;
+
+} // end class LoadSecuritiesEvent
@@ -3,6 +3,17 @@
  */
 package com.moneydance.modules.features.moredecimal;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.swing.SwingWorker;
+
+import com.infinitekind.moneydance.model.AccountBook;
 import com.infinitekind.moneydance.model.CurrencyType;
 import com.moneydance.apps.md.controller.FeatureModule;
 
@@ -12,6 +23,42 @@ import com.moneydance.apps.md.controller.FeatureModule;
 public class Main extends FeatureModule {
 	private MoreDecimalWindow decimalWindow = null;
 	private DecimalChanger decimalChanger = null;
+	private ChangeWorker worker = null;
+	private SecurityAccountIndex accountIndex = null;
+	private ChangeState state = ChangeState.IDLE;
+	private ChangeWorker pendingStage = null;
+	private volatile int previewRequest = 0;
+	private ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "More Decimal writer");
+		thread.setDaemon(true);
+
+		return thread;
+	});
+
+	private static final String STAGE_PROGRESS = "MoreDecimalWindow.progress.stage";
+	private static final String COMMIT_PROGRESS = "MoreDecimalWindow.progress.commit";
+	private static final String SCAN_PROGRESS = "MoreDecimalWindow.progress.scan";
+	private static final String TRANSFER_PROGRESS = "MoreDecimalWindow.progress.transfer";
+	private static final long PROGRESS_INTERVAL = 200; // milliseconds
+	private static final String METRICS_HISTORY_PROPERTY = "moredecimal.metricsHistory";
+	private static final String COMMIT_CHUNK_PROPERTY = "moredecimal.commitChunk";
+	private static final String COMMIT_PAUSE_PROPERTY = "moredecimal.commitPauseMillis";
+	private static final int DEFAULT_COMMIT_CHUNK = 500; // most syncs per chunk
+	private static final long DEFAULT_COMMIT_PAUSE = 5; // milliseconds
+	private static final String MIN_SEVERITY_PROPERTY = "moredecimal.minSeverity";
+	private static final String STREAMING_PROPERTY = "moredecimal.streaming";
+	private static final String BULK_COMMIT_PROPERTY = "moredecimal.bulkCommit";
+	private static final String COLUMNAR_PROPERTY = "moredecimal.columnar";
+
+	/**
+	 * Lifecycle of the changes in our decimal changer. The state is only read and
+	 * changed on the event dispatch thread, while the changer itself is only used
+	 * by work running one task at a time on our writer thread, so neither needs
+	 * a lock.
+	 */
+	private enum ChangeState {
+		IDLE, STAGING, STAGED, COMMITTING, CLOSED
+	} // end enum ChangeState
 
 	/**
 	 * Register this module to be invoked via the extensions menu.
@@ -31,45 +78,367 @@ public class Main extends FeatureModule {
 	public void invoke(String uri) {
 		System.err.println(getName() + " invoked with uri [" + uri + ']');
 		showWindow();
+		AccountBook book = getContext().getCurrentAccountBook();
+
+		if (this.accountIndex == null || this.accountIndex.getBook() != book) {
+			// build a new index when the account book changes
+			cancelWork();
+			releaseLater(this.decimalChanger, this.accountIndex);
+			this.decimalChanger = null;
+			this.accountIndex = new SecurityAccountIndex(book);
+		}
 
-		this.decimalChanger = new DecimalChanger(this.decimalWindow,
-			getContext().getCurrentAccountBook());
+		if (this.state == ChangeState.CLOSED) {
+			this.state = ChangeState.IDLE;
+		}
+
+		if (this.decimalChanger == null) {
+			// keep an existing changer so staged or paused changes survive
+			this.decimalChanger = new DecimalChanger(this.decimalWindow, book, this.accountIndex);
+			// for very large books, trade a second pass at commit for flat memory use
+			this.decimalChanger.setStreaming(Boolean.getBoolean(STREAMING_PROPERTY));
+			// defer balance updates until the whole commit is applied
+			this.decimalChanger.setBulkCommit(Boolean.getBoolean(BULK_COMMIT_PROPERTY));
+			// check splits over copied columns instead of the transaction objects
+			this.decimalChanger.setColumnar(Boolean.getBoolean(COLUMNAR_PROPERTY));
+			String minSeverity = System.getProperty(MIN_SEVERITY_PROPERTY);
+
+			if (minSeverity != null) {
+				// show only the account diagnostics that matter enough
+				this.decimalChanger.setDiagnosticThreshold(
+					Diagnostics.Severity.valueOf(minSeverity.toUpperCase(Locale.ROOT)));
+			}
+			String metricsHistory = System.getProperty(METRICS_HISTORY_PROPERTY);
+
+			if (metricsHistory != null) {
+				this.decimalChanger.setMetricsHistory(Paths.get(metricsHistory));
+			}
+			// commit in chunks so the user interface stays responsive
+			this.decimalChanger.setCommitThrottle(new CommitThrottle(
+				Integer.getInteger(COMMIT_CHUNK_PROPERTY, DEFAULT_COMMIT_CHUNK),
+				Long.getLong(COMMIT_PAUSE_PROPERTY, DEFAULT_COMMIT_PAUSE)));
+			Path journalFolder = book.getRootFolder().toPath();
+			this.decimalChanger.setJournalFolder(journalFolder);
+			try {
+				CommitJournal interrupted = CommitJournal.findInterrupted(journalFolder);
+
+				if (interrupted != null) {
+					offerRecovery(interrupted);
+				}
+			} catch (Throwable e) {
+				handleException(e);
+			}
+		}
 
 	} // end invoke(String)
 
 	/**
-	 * Change the specified security to a new number of decimal places.
+	 * Change the specified security to a new number of decimal places. A request
+	 * made while staging replaces the stage in flight, which is canceled, and any
+	 * request still waiting for it to stop, so repeated requests stage just once.
 	 */
 	void changeDecimals() {
 		try {
-			synchronized (this.decimalChanger) {
-				this.decimalWindow.clearText();
-				this.decimalChanger.forgetChanges();
-				CurrencyType origSecurity = this.decimalWindow.getSecurity();
-				int newDecimals = this.decimalWindow.getNewDecimals();
-				this.decimalChanger.changeDecimals(origSecurity, newDecimals);
+			List<RescaleTarget> targets = this.decimalWindow.getTargets();
+			boolean failFast = this.decimalWindow.isFailFast();
+			DecimalChanger changer = this.decimalChanger;
+
+			this.pendingStage = new ChangeWorker(STAGE_PROGRESS, ChangeState.STAGING) {
+				protected void runTask() {
+					changer.setProgressReporter(this);
+					changer.setFailFast(failFast);
+					changer.forgetChanges();
+					changer.changeDecimals(targets);
+
+				} // end runTask()
+
+				protected void finished() {
+					Main.this.decimalWindow.enableCommitButton(changer.isModified());
+
+				} // end finished()
+			};
+
+			if (this.worker == null) {
+				startPendingStage();
+			} else if (this.state == ChangeState.STAGING) {
+				// the stage in flight is obsolete; ours starts when it stops
+				this.worker.requestCancel();
 			}
-			this.decimalWindow.enableCommitButton(this.decimalChanger.isModified());
 		} catch (Throwable e) {
 			handleException(e);
 		}
 
 	} // end changeDecimals()
 
+	/**
+	 * Start the most recently requested stage.
+	 */
+	private void startPendingStage() {
+		ChangeWorker stage = this.pendingStage;
+		this.pendingStage = null;
+		this.decimalWindow.clearText();
+		startWorker(stage);
+		// allow the batch to be edited and staged again while this stage runs
+		this.decimalWindow.allowRestage();
+
+	} // end startPendingStage()
+
 	/**
 	 * This is called when the commit button is selected.
 	 */
 	void commitChanges() {
-		try {
-			synchronized (this.decimalChanger) {
-				this.decimalChanger.commitChanges();
+		if (this.state != ChangeState.STAGED || this.worker != null)
+			return;
+		DecimalChanger changer = this.decimalChanger;
+
+		startWorker(new ChangeWorker(COMMIT_PROGRESS, ChangeState.COMMITTING) {
+			protected void runTask() {
+				changer.setProgressReporter(this);
+				changer.commitChanges();
+
+			} // end runTask()
+
+			protected void finished() {
+				Main.this.decimalWindow.disableActions();
+				// a paused commit can only be resumed
+				Main.this.decimalWindow.enableCommitButton(changer.isCommitPaused());
+
+			} // end finished()
+		});
+
+	} // end commitChanges()
+
+	/**
+	 * Save the staged changes to a change set file.
+	 *
+	 * @param file Where to write the change set
+	 */
+	void exportChanges(Path file) {
+		if (this.worker != null || this.decimalChanger.isCommitPaused())
+			return;
+		DecimalChanger changer = this.decimalChanger;
+
+		startWorker(new ChangeWorker(TRANSFER_PROGRESS, null) {
+			protected void runTask() {
+				changer.setProgressReporter(this);
+				changer.exportChanges(file);
+
+			} // end runTask()
+
+			protected void finished() {
+				Main.this.decimalWindow.enableCommitButton(changer.isModified());
+
+			} // end finished()
+		});
+
+	} // end exportChanges(Path)
+
+	/**
+	 * Stage the changes saved in a change set file.
+	 *
+	 * @param file The change set to import
+	 */
+	void importChanges(Path file) {
+		// a paused commit can only be resumed
+		if (this.worker != null || this.decimalChanger.isCommitPaused())
+			return;
+		this.decimalWindow.clearText();
+		DecimalChanger changer = this.decimalChanger;
+
+		startWorker(new ChangeWorker(TRANSFER_PROGRESS, ChangeState.STAGING) {
+			protected void runTask() {
+				changer.setProgressReporter(this);
+				changer.importChanges(file);
+
+			} // end runTask()
+
+			protected void finished() {
+				Main.this.decimalWindow.enableCommitButton(changer.isModified());
+
+			} // end finished()
+		});
+
+	} // end importChanges(Path)
+
+	/**
+	 * Find the feasible decimal places of every security and show them in a report.
+	 */
+	void scanPrecision() {
+		DecimalChanger changer = this.decimalChanger;
+		PrecisionScanner scanner = new PrecisionScanner(this.accountIndex.getBook(),
+			this.accountIndex, changer.getSummaryCache());
+
+		startWorker(new ChangeWorker(SCAN_PROGRESS, null) {
+			private List<PrecisionProfile> profiles = null;
+
+			protected void runTask() {
+				this.profiles = scanner.scan(this);
+
+			} // end runTask()
+
+			protected void finished() {
+				Main.this.decimalWindow.enableCommitButton(changer.isModified());
+
+				if (this.profiles != null) {
+					Main.this.decimalWindow.showPrecisionReport(this.profiles);
+				}
+
+			} // end finished()
+		});
+
+	} // end scanPrecision()
+
+	/**
+	 * Check on our writer thread whether a security could change to a number of
+	 * decimal places, and show the answer in our window. The summary cache is
+	 * only used from the writer thread, so a check waits for any work running
+	 * there, and a newer check replaces any still waiting.
+	 *
+	 * @param security
+	 * @param newDecimalPlaces
+	 */
+	void previewDecimals(CurrencyType security, int newDecimalPlaces) {
+		DecimalChanger changer = this.decimalChanger;
+
+		if (changer == null)
+			return;
+		int request = ++this.previewRequest;
+
+		this.writer.execute(new SwingWorker<Integer, Void>() {
+			protected Integer doInBackground() {
+				if (request != Main.this.previewRequest)
+					return null;
+
+				return changer.checkFeasibility(security, newDecimalPlaces);
+			} // end doInBackground()
+
+			protected void done() {
+				if (Main.this.decimalWindow != null && request == Main.this.previewRequest) {
+					try {
+						Main.this.decimalWindow.showPreview(security, newDecimalPlaces, get());
+					} catch (ExecutionException e) {
+						handleException(e.getCause());
+					} catch (Throwable e) {
+						handleException(e);
+					}
+				}
+
+			} // end done()
+		});
+
+	} // end previewDecimals(CurrencyType, int)
+
+	/**
+	 * Ask whether to resume or roll back an interrupted commit, then do so.
+	 *
+	 * @param interrupted The journal of the interrupted commit
+	 */
+	private void offerRecovery(CommitJournal interrupted) {
+		if (this.worker != null) {
+			// work on the previous book is still stopping; offer next time instead
+			interrupted.close();
+
+			return;
+		}
+		DecimalChanger changer = this.decimalChanger;
+		int numCommitted = interrupted.getNumCommitted();
+		int numEntries = interrupted.getNumEntries();
+		int choice = this.decimalWindow.askRecovery(numCommitted, numEntries);
+
+		if (choice == MoreDecimalWindow.RECOVER_LATER) {
+			interrupted.close();
+
+			return;
+		}
+		boolean rollBack = choice == MoreDecimalWindow.RECOVER_ROLL_BACK;
+		this.decimalWindow.clearText();
+
+		startWorker(new ChangeWorker(COMMIT_PROGRESS, ChangeState.COMMITTING) {
+			protected void runTask() {
+				changer.setProgressReporter(this);
+				changer.writeRecoveryFound(numCommitted, numEntries);
+				changer.recoverCommit(interrupted, rollBack);
+
+			} // end runTask()
+
+			protected void finished() {
+				Main.this.decimalWindow.enableCommitButton(false);
+
+			} // end finished()
+		});
+
+	} // end offerRecovery(CommitJournal)
+
+	/**
+	 * This is called when the cancel button is selected.
+	 */
+	void cancelWork() {
+		this.pendingStage = null;
+
+		if (this.worker != null) {
+			this.worker.requestCancel();
+		}
+
+	} // end cancelWork()
+
+	/**
+	 * @param changeWorker The worker to run on our writer thread
+	 */
+	private void startWorker(ChangeWorker changeWorker) {
+		this.worker = changeWorker;
+
+		if (changeWorker.runningState != null) {
+			this.state = changeWorker.runningState;
+		}
+		this.decimalWindow.setBusy(true);
+		// the work may change the staged changes under review
+		this.decimalWindow.showStagedChanges(null, null);
+		this.writer.execute(changeWorker);
+
+	} // end startWorker(ChangeWorker)
+
+	/**
+	 * Settle into the state our changer is left in after some work, then start
+	 * any stage requested meanwhile.
+	 */
+	private void workDone() {
+		if (this.state != ChangeState.CLOSED) {
+			this.state = this.decimalChanger != null && this.decimalChanger.isModified()
+				? ChangeState.STAGED : ChangeState.IDLE;
+
+			if (this.state == ChangeState.STAGED && this.decimalWindow != null
+					&& !this.decimalChanger.isCommitPaused()) {
+				// nothing runs on our writer thread until the next worker, which detaches these
+				this.decimalWindow.showStagedChanges(this.decimalChanger.getStagedChanges(),
+					this.decimalChanger.getTargets());
+			}
+
+			if (this.pendingStage != null && this.decimalWindow != null) {
+				startPendingStage();
 			}
-			this.decimalWindow.disableActions();
-		} catch (Throwable e) {
-			handleException(e);
 		}
 
-	} // end commitChanges()
+	} // end workDone()
+
+	/**
+	 * Release a changer and index once any work already queued on our writer
+	 * thread, which may still be using them, stops.
+	 *
+	 * @param changer
+	 * @param index
+	 */
+	private void releaseLater(DecimalChanger changer, SecurityAccountIndex index) {
+		this.writer.execute(() -> {
+			if (changer != null) {
+				changer.releaseResources();
+			}
+
+			if (index != null) {
+				index.releaseResources();
+			}
+		});
+
+	} // end releaseLater(DecimalChanger, SecurityAccountIndex)
 
 	private void handleException(Throwable e) {
 		this.decimalWindow.addText(e.toString());
@@ -78,8 +447,111 @@ public class Main extends FeatureModule {
 
 	} // end handleException(Throwable)
 
+	/**
+	 * Class to run a stage or commit operation off the event dispatch thread,
+	 * relaying its progress to our window and honoring cancel requests.
+	 */
+	private abstract class ChangeWorker extends SwingWorker<Void, int[]>
+			implements ProgressReporter {
+		private String progressKey;
+		private ChangeState runningState;
+		private long startTime = System.currentTimeMillis();
+		private long lastPublishTime = 0;
+		private volatile boolean cancelRequested = false;
+
+		/**
+		 * Sole constructor.
+		 *
+		 * @param progressKey The resource bundle key for progress text
+		 * @param runningState The state while running, or null to keep the current state
+		 */
+		public ChangeWorker(String progressKey, ChangeState runningState) {
+			this.progressKey = progressKey;
+			this.runningState = runningState;
+
+		} // end (String, ChangeState) constructor
+
+		/**
+		 * Perform the operation; called on a background thread.
+		 */
+		protected abstract void runTask();
+
+		/**
+		 * Update our window after the operation completes successfully; called on
+		 * the event dispatch thread.
+		 */
+		protected abstract void finished();
+
+		protected Void doInBackground() {
+			runTask();
+
+			return null;
+		} // end doInBackground()
+
+		public synchronized void reportProgress(int unitsDone, int totalUnits, int txnsDone) {
+			long now = System.currentTimeMillis();
+
+			// limit updates to a few per second, but always show completion
+			if (now - this.lastPublishTime >= PROGRESS_INTERVAL || unitsDone == totalUnits) {
+				this.lastPublishTime = now;
+				publish(new int[] { unitsDone, totalUnits, txnsDone });
+			}
+
+		} // end reportProgress(int, int, int)
+
+		protected void process(List<int[]> chunks) {
+			if (Main.this.decimalWindow == null)
+				return;
+			int[] latest = chunks.get(chunks.size() - 1);
+			long elapsed = System.currentTimeMillis() - this.startTime;
+			long remaining = latest[0] == 0 ? -1
+				: elapsed * (latest[1] - latest[0]) / latest[0];
+			Main.this.decimalWindow.showProgress(this.progressKey, latest[0], latest[1],
+				latest[2], remaining);
+
+		} // end process(List<int[]>)
+
+		protected void done() {
+			// only the current work updates our window and state
+			if (Main.this.worker != this)
+				return;
+			Main.this.worker = null;
+
+			if (Main.this.decimalWindow != null) {
+				Main.this.decimalWindow.setBusy(false);
+				try {
+					get();
+					finished();
+				} catch (ExecutionException e) {
+					handleException(e.getCause());
+				} catch (Throwable e) {
+					handleException(e);
+				}
+			}
+			workDone();
+
+		} // end done()
+
+		/**
+		 * Ask the operation to stop at its next safe point.
+		 */
+		public void requestCancel() {
+			this.cancelRequested = true;
+
+		} // end requestCancel()
+
+		public boolean isCancelRequested() {
+
+			return this.cancelRequested;
+		} // end isCancelRequested()
+
+	} // end class ChangeWorker
+
 	public void cleanup() {
 		closeWindow();
+		releaseLater(null, this.accountIndex);
+		this.accountIndex = null;
+		this.writer.shutdown();
 
 	} // end cleanup()
 
@@ -91,7 +563,7 @@ public class Main extends FeatureModule {
 	/**
 	 * Show our window.
 	 */
-	private synchronized void showWindow() {
+	private void showWindow() {
 		if (this.decimalWindow == null) {
 			this.decimalWindow = new MoreDecimalWindow(this,
 				getContext().getCurrentAccountBook().getCurrencies());
@@ -107,12 +579,14 @@ public class Main extends FeatureModule {
 	/**
 	 * Close our window and release resources.
 	 */
-	synchronized void closeWindow() {
+	void closeWindow() {
+		this.state = ChangeState.CLOSED;
+		cancelWork();
+
 		if (this.decimalWindow != null)
 			this.decimalWindow = this.decimalWindow.goAway();
-
-		if (this.decimalChanger != null)
-			this.decimalChanger = this.decimalChanger.releaseResources();
+		releaseLater(this.decimalChanger, null);
+		this.decimalChanger = null;
 
 	} // end closeWindow()
 
@@ -9,6 +9,7 @@ import java.util.Locale;
  * Interface the more decimal processor uses to interact with its window.
  */
 public interface MoreDecimalInterface {
+	String baseMessageBundleName = "com.moneydance.modules.features.moredecimal.MoreDecimalMessages";
 
 	/**
 	 * @param text HTML text to append to the output log text area
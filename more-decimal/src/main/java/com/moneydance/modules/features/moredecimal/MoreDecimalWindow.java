@@ -3,40 +3,61 @@
  */
 package com.moneydance.modules.features.moredecimal;
 
+import static com.moneydance.modules.features.moredecimal.FixedPointScaler.RESCALE_OK;
+import static com.moneydance.modules.features.moredecimal.FixedPointScaler.RESCALE_OVERFLOW;
 import static javax.swing.GroupLayout.DEFAULT_SIZE;
 import static javax.swing.GroupLayout.PREFERRED_SIZE;
 
 import java.awt.AWTEvent;
+import java.awt.BorderLayout;
 import java.awt.Dimension;
+import java.awt.Graphics;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.FocusEvent;
 import java.awt.event.FocusListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.text.NumberFormat;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.ResourceBundle;
 
-import javax.swing.AbstractListModel;
-import javax.swing.ComboBoxModel;
+import javax.swing.DefaultListModel;
 import javax.swing.GroupLayout;
 import javax.swing.GroupLayout.Alignment;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.ComboBoxModel;
 import javax.swing.JComboBox;
 import javax.swing.JComponent;
+import javax.swing.JFileChooser;
 import javax.swing.JFormattedTextField;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JProgressBar;
 import javax.swing.JScrollPane;
+import javax.swing.JTabbedPane;
+import javax.swing.JTable;
+import javax.swing.JTextField;
 import javax.swing.LayoutStyle.ComponentPlacement;
 import javax.swing.SwingUtilities;
 import javax.swing.WindowConstants;
 import javax.swing.border.EmptyBorder;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+import javax.swing.table.TableColumn;
 
 import com.infinitekind.moneydance.model.CurrencyTable;
 import com.infinitekind.moneydance.model.CurrencyType;
-import com.infinitekind.moneydance.model.CurrencyUtil;
 import com.leastlogic.swing.util.HTMLPane;
 
 /**
@@ -46,66 +67,39 @@ import com.leastlogic.swing.util.HTMLPane;
 public class MoreDecimalWindow extends JFrame
 		implements ActionListener, FocusListener, MoreDecimalInterface {
 
-	private static class SecurityDataModel extends AbstractListModel<CurrencyType>
-			implements ComboBoxModel<CurrencyType> {
-		private ArrayList<CurrencyType> securities = new ArrayList<>();
-		private Object selectedItem = null;
-		private static final long serialVersionUID = -8592081172767823724L;
-
-		public SecurityDataModel(CurrencyTable allCurrencies) {
-			for (CurrencyType currency : allCurrencies) {
-				if (currency.getCurrencyType() == CurrencyType.Type.SECURITY
-						&& !currency.getBooleanParameter("hide_in_ui", false)) {
-					this.securities.add(currency);
-				}
-			} // end for
-
-			this.securities.sort(CurrencyUtil.CURRENCY_TYPENAME_COMPARATOR);
-
-		} // end (CurrencyTable) constructor
-
-		public int getSize() {
-
-			return this.securities.size();
-		} // end getSize()
-
-		public CurrencyType getElementAt(int index) {
-
-			return this.securities.get(index);
-		} // end getElementAt(int)
-
-		public void setSelectedItem(Object item) {
-			if (!equalsSelected(item)) {
-				this.selectedItem = item;
-				fireContentsChanged(this, -1, -1);
-			}
-
-		} // end setSelectedItem(Object)
-
-		private boolean equalsSelected(Object item) {
-
-			if (this.selectedItem == null) {
-				return this.selectedItem == item;
-			} else {
-				return this.selectedItem.equals(item);
-			}
-		} // end equalsSelected(Object)
-
-		public Object getSelectedItem() {
-
-			return this.selectedItem;
-		} // end getSelectedItem()
-
-	} // end class SecurityDataModel
-
 	private Main feature;
+	private FirstPaintEvent firstPaint = new FirstPaintEvent();
+	private SecurityDataModel securityModel;
 	private JComboBox<CurrencyType> securityList;
 	private JFormattedTextField fldDecimals;
+	private JLabel lblPreview;
+	private JButton btnAdd;
+	private JList<RescaleTarget> lstTargets;
+	private DefaultListModel<RescaleTarget> targetModel = new DefaultListModel<>();
+	private JButton btnRemove;
 	private JButton btnStage;
 	private JButton btnCommit;
+	private JCheckBox chkFailFast;
+	private JProgressBar progressBar;
+	private JButton btnCancel;
+	private JButton btnLogFile;
+	private JButton btnScan;
+	private JButton btnExport;
+	private JButton btnImport;
+	private PrecisionReportWindow precisionReport = null;
 	private HTMLPane pnOutputLog;
-
-	static final String baseMessageBundleName = "com.moneydance.modules.features.moredecimal.MoreDecimalMessages";
+	private OutputLogSink logSink;
+	private JTabbedPane tabbedPane;
+	private JTextField fldFilter;
+	private JTable tblReview;
+	private StagedChangesTableModel reviewModel = new StagedChangesTableModel();
+
+	// choices for an interrupted commit
+	static final int RECOVER_RESUME = 0;
+	static final int RECOVER_ROLL_BACK = 1;
+	static final int RECOVER_LATER = 2;
+
+	private static final long TYPE_AHEAD_RESET = 1000; // milliseconds between keys
 	private static final ResourceBundle msgBundle = ResourceBundle.getBundle(baseMessageBundleName);
 	private static final NumberFormat txtNumberFmt = NumberFormat.getIntegerInstance();
 	private static final long serialVersionUID = -3503760217056404933L;
@@ -118,6 +112,7 @@ public class MoreDecimalWindow extends JFrame
 	 */
 	public MoreDecimalWindow(Main feature, CurrencyTable allCurrencies) {
 		super(msgBundle.getString("MoreDecimalWindow.window.title"));
+		this.firstPaint.begin();
 		this.feature = feature;
 		initComponents(allCurrencies);
 		wireEvents();
@@ -138,7 +133,8 @@ public class MoreDecimalWindow extends JFrame
 
 		JLabel lblSecurityToChange = new JLabel(msgBundle.getString("MoreDecimalWindow.lblSecurity.text"));
 
-		this.securityList = new JComboBox<>(new SecurityDataModel(allCurrencies));
+		this.securityModel = new SecurityDataModel(allCurrencies);
+		this.securityList = new JComboBox<>(this.securityModel);
 		this.securityList.setToolTipText(msgBundle.getString("MoreDecimalWindow.securityList.toolTipText"));
 
 		JLabel lblDecimals = new JLabel(msgBundle.getString("MoreDecimalWindow.lblDecimals.text"));
@@ -147,6 +143,20 @@ public class MoreDecimalWindow extends JFrame
 		this.fldDecimals.setColumns(2);
 		this.fldDecimals.setToolTipText(msgBundle.getString("MoreDecimalWindow.fldDecimals.toolTipText"));
 
+		this.lblPreview = new JLabel();
+		this.lblPreview.setToolTipText(msgBundle.getString("MoreDecimalWindow.lblPreview.toolTipText"));
+
+		this.btnAdd = new JButton(msgBundle.getString("MoreDecimalWindow.btnAdd.text"));
+		this.btnAdd.setEnabled(false);
+		this.btnAdd.setToolTipText(msgBundle.getString("MoreDecimalWindow.btnAdd.toolTipText"));
+
+		this.lstTargets = new JList<>(this.targetModel);
+		this.lstTargets.setToolTipText(msgBundle.getString("MoreDecimalWindow.lstTargets.toolTipText"));
+		JScrollPane targetScrollPane = new JScrollPane(this.lstTargets);
+
+		this.btnRemove = new JButton(msgBundle.getString("MoreDecimalWindow.btnRemove.text"));
+		this.btnRemove.setToolTipText(msgBundle.getString("MoreDecimalWindow.btnRemove.toolTipText"));
+
 		this.btnStage = new JButton(msgBundle.getString("MoreDecimalWindow.btnStage.text"));
 		this.btnStage.setEnabled(false);
 		this.btnStage.setToolTipText(msgBundle.getString("MoreDecimalWindow.btnStage.toolTipText"));
@@ -155,13 +165,64 @@ public class MoreDecimalWindow extends JFrame
 		this.btnCommit.setEnabled(false);
 		this.btnCommit.setToolTipText(msgBundle.getString("MoreDecimalWindow.btnCommit.toolTipText"));
 
+		this.chkFailFast = new JCheckBox(msgBundle.getString("MoreDecimalWindow.chkFailFast.text"));
+		this.chkFailFast.setToolTipText(msgBundle.getString("MoreDecimalWindow.chkFailFast.toolTipText"));
+
+		this.progressBar = new JProgressBar();
+		this.progressBar.setStringPainted(true);
+		this.progressBar.setString("");
+
+		this.btnCancel = new JButton(msgBundle.getString("MoreDecimalWindow.btnCancel.text"));
+		this.btnCancel.setEnabled(false);
+		this.btnCancel.setToolTipText(msgBundle.getString("MoreDecimalWindow.btnCancel.toolTipText"));
+
 		reducePreferredHeight(this.securityList);
+		reducePreferredHeight(this.btnAdd);
+		reducePreferredHeight(this.btnRemove);
 		reducePreferredHeight(this.btnStage);
 		reducePreferredHeight(this.btnCommit);
+		reducePreferredHeight(this.progressBar);
+		reducePreferredHeight(this.btnCancel);
+
+		this.btnLogFile = new JButton(msgBundle.getString("MoreDecimalWindow.btnLogFile.text"));
+		this.btnLogFile.setToolTipText(msgBundle.getString("MoreDecimalWindow.btnLogFile.toolTipText"));
+		reducePreferredHeight(this.btnLogFile);
+
+		this.btnScan = new JButton(msgBundle.getString("MoreDecimalWindow.btnScan.text"));
+		this.btnScan.setToolTipText(msgBundle.getString("MoreDecimalWindow.btnScan.toolTipText"));
+		reducePreferredHeight(this.btnScan);
+
+		this.btnExport = new JButton(msgBundle.getString("MoreDecimalWindow.btnExport.text"));
+		this.btnExport.setToolTipText(msgBundle.getString("MoreDecimalWindow.btnExport.toolTipText"));
+		reducePreferredHeight(this.btnExport);
+
+		this.btnImport = new JButton(msgBundle.getString("MoreDecimalWindow.btnImport.text"));
+		this.btnImport.setToolTipText(msgBundle.getString("MoreDecimalWindow.btnImport.toolTipText"));
+		reducePreferredHeight(this.btnImport);
 
 		this.pnOutputLog = new HTMLPane();
+		this.logSink = new OutputLogSink(this.pnOutputLog, getLocale(),
+			msgBundle.getString("MoreDecimalWindow.logOmitted"));
 		JScrollPane scrollPane = new JScrollPane(this.pnOutputLog);
 
+		JLabel lblFilter = new JLabel(msgBundle.getString("MoreDecimalWindow.lblFilter.text"));
+		this.fldFilter = new JTextField();
+		this.fldFilter.setToolTipText(msgBundle.getString("MoreDecimalWindow.fldFilter.toolTipText"));
+		JPanel filterPanel = new JPanel(new BorderLayout(5, 0));
+		filterPanel.setBorder(new EmptyBorder(2, 2, 2, 2));
+		filterPanel.add(lblFilter, BorderLayout.WEST);
+		filterPanel.add(this.fldFilter, BorderLayout.CENTER);
+
+		this.tblReview = new JTable(this.reviewModel);
+		this.tblReview.getTableHeader().setToolTipText(msgBundle.getString("MoreDecimalWindow.tblReview.toolTipText"));
+		JPanel reviewPanel = new JPanel(new BorderLayout());
+		reviewPanel.add(filterPanel, BorderLayout.NORTH);
+		reviewPanel.add(new JScrollPane(this.tblReview), BorderLayout.CENTER);
+
+		this.tabbedPane = new JTabbedPane();
+		this.tabbedPane.addTab(msgBundle.getString("MoreDecimalWindow.tabLog.text"), scrollPane);
+		this.tabbedPane.addTab(msgBundle.getString("MoreDecimalWindow.tabReview.text"), reviewPanel);
+
 		GroupLayout gl_contentPane = new GroupLayout(contentPane);
 		gl_contentPane.setHorizontalGroup(
 			gl_contentPane.createParallelGroup(Alignment.TRAILING)
@@ -173,11 +234,34 @@ public class MoreDecimalWindow extends JFrame
 					.addComponent(lblDecimals)
 					.addPreferredGap(ComponentPlacement.RELATED)
 					.addComponent(this.fldDecimals, PREFERRED_SIZE, PREFERRED_SIZE, PREFERRED_SIZE)
+					.addPreferredGap(ComponentPlacement.RELATED)
+					.addComponent(this.lblPreview, PREFERRED_SIZE, 70, PREFERRED_SIZE)
+					.addPreferredGap(ComponentPlacement.RELATED)
+					.addComponent(this.btnAdd)
 					.addPreferredGap(ComponentPlacement.UNRELATED)
 					.addComponent(this.btnStage)
 					.addPreferredGap(ComponentPlacement.RELATED)
 					.addComponent(this.btnCommit))
-				.addComponent(scrollPane, DEFAULT_SIZE, 552, Short.MAX_VALUE)
+				.addGroup(gl_contentPane.createSequentialGroup()
+					.addGroup(gl_contentPane.createParallelGroup(Alignment.TRAILING)
+						.addComponent(targetScrollPane, PREFERRED_SIZE, 150, PREFERRED_SIZE)
+						.addComponent(this.btnRemove))
+					.addPreferredGap(ComponentPlacement.RELATED)
+					.addComponent(this.tabbedPane, DEFAULT_SIZE, 396, Short.MAX_VALUE))
+				.addGroup(gl_contentPane.createSequentialGroup()
+					.addComponent(this.btnLogFile)
+					.addPreferredGap(ComponentPlacement.RELATED)
+					.addComponent(this.btnScan)
+					.addPreferredGap(ComponentPlacement.RELATED)
+					.addComponent(this.btnExport)
+					.addPreferredGap(ComponentPlacement.RELATED)
+					.addComponent(this.btnImport)
+					.addPreferredGap(ComponentPlacement.UNRELATED)
+					.addComponent(this.chkFailFast)
+					.addPreferredGap(ComponentPlacement.UNRELATED)
+					.addComponent(this.progressBar, DEFAULT_SIZE, 150, Short.MAX_VALUE)
+					.addPreferredGap(ComponentPlacement.RELATED)
+					.addComponent(this.btnCancel))
 		);
 		gl_contentPane.setVerticalGroup(
 			gl_contentPane.createParallelGroup(Alignment.LEADING)
@@ -187,10 +271,26 @@ public class MoreDecimalWindow extends JFrame
 						.addComponent(this.securityList)
 						.addComponent(lblDecimals)
 						.addComponent(this.fldDecimals, PREFERRED_SIZE, DEFAULT_SIZE, PREFERRED_SIZE)
+						.addComponent(this.lblPreview)
+						.addComponent(this.btnAdd)
 						.addComponent(this.btnStage)
 						.addComponent(this.btnCommit))
 					.addPreferredGap(ComponentPlacement.RELATED)
-					.addComponent(scrollPane, DEFAULT_SIZE, 282, Short.MAX_VALUE))
+					.addGroup(gl_contentPane.createParallelGroup(Alignment.LEADING)
+						.addGroup(gl_contentPane.createSequentialGroup()
+							.addComponent(targetScrollPane, DEFAULT_SIZE, 250, Short.MAX_VALUE)
+							.addPreferredGap(ComponentPlacement.RELATED)
+							.addComponent(this.btnRemove))
+						.addComponent(this.tabbedPane, DEFAULT_SIZE, 282, Short.MAX_VALUE))
+					.addPreferredGap(ComponentPlacement.RELATED)
+					.addGroup(gl_contentPane.createParallelGroup(Alignment.CENTER)
+						.addComponent(this.btnLogFile)
+						.addComponent(this.btnScan)
+						.addComponent(this.btnExport)
+						.addComponent(this.btnImport)
+						.addComponent(this.chkFailFast)
+						.addComponent(this.progressBar)
+						.addComponent(this.btnCancel)))
 		);
 		contentPane.setLayout(gl_contentPane);
 
@@ -207,12 +307,109 @@ public class MoreDecimalWindow extends JFrame
 
 	private void wireEvents() {
 		this.securityList.addActionListener(this);
+		this.securityList.setKeySelectionManager(new JComboBox.KeySelectionManager() {
+			private StringBuilder typed = new StringBuilder();
+			private long lastKeyTime = 0;
+
+			public int selectionForKey(char aKey, ComboBoxModel<?> aModel) {
+				long now = System.currentTimeMillis();
+
+				if (now - this.lastKeyTime > TYPE_AHEAD_RESET) {
+					this.typed.setLength(0);
+				}
+				this.lastKeyTime = now;
+				this.typed.append(aKey);
+
+				return MoreDecimalWindow.this.securityModel.indexOfMatch(this.typed.toString());
+			} // end selectionForKey(char, ComboBoxModel<?>)
+		});
 		this.fldDecimals.addFocusListener(this);
+		this.fldDecimals.getDocument().addDocumentListener(new DocumentListener() {
+			public void insertUpdate(DocumentEvent event) {
+				requestPreview();
+
+			} // end insertUpdate(DocumentEvent)
+
+			public void removeUpdate(DocumentEvent event) {
+				requestPreview();
+
+			} // end removeUpdate(DocumentEvent)
+
+			public void changedUpdate(DocumentEvent event) {
+				// attribute changes don't affect the text
+
+			} // end changedUpdate(DocumentEvent)
+		});
+		this.btnAdd.addActionListener(this);
+		this.btnRemove.addActionListener(this);
 		this.btnStage.addActionListener(this);
 		this.btnCommit.addActionListener(this);
+		this.btnCancel.addActionListener(this);
+		this.btnLogFile.addActionListener(this);
+		this.btnScan.addActionListener(this);
+		this.btnExport.addActionListener(this);
+		this.btnImport.addActionListener(this);
+		this.fldFilter.getDocument().addDocumentListener(new DocumentListener() {
+			public void insertUpdate(DocumentEvent event) {
+				MoreDecimalWindow.this.reviewModel.setFilter(MoreDecimalWindow.this.fldFilter.getText());
+
+			} // end insertUpdate(DocumentEvent)
+
+			public void removeUpdate(DocumentEvent event) {
+				MoreDecimalWindow.this.reviewModel.setFilter(MoreDecimalWindow.this.fldFilter.getText());
+
+			} // end removeUpdate(DocumentEvent)
+
+			public void changedUpdate(DocumentEvent event) {
+				// attribute changes don't affect the text
+
+			} // end changedUpdate(DocumentEvent)
+		});
+		this.tblReview.getTableHeader().addMouseListener(new MouseAdapter() {
+			public void mouseClicked(MouseEvent event) {
+				JTable table = MoreDecimalWindow.this.tblReview;
+				int column = table.columnAtPoint(event.getPoint());
+
+				if (column >= 0) {
+					MoreDecimalWindow.this.reviewModel.toggleSort(table.convertColumnIndexToModel(column));
+				}
+
+			} // end mouseClicked(MouseEvent)
+		});
+		this.reviewModel.addTableModelListener(new TableModelListener() {
+			public void tableChanged(TableModelEvent event) {
+				updateReviewHeadings();
+
+			} // end tableChanged(TableModelEvent)
+		});
 
 	} // end wireEvents()
 
+	/**
+	 * Show the sort order in the review column headings and the row count in
+	 * the review tab.
+	 */
+	private void updateReviewHeadings() {
+		for (int i = 0; i < this.tblReview.getColumnCount(); ++i) {
+			TableColumn column = this.tblReview.getColumnModel().getColumn(i);
+			column.setHeaderValue(this.reviewModel.getColumnName(column.getModelIndex()));
+		} // end for
+		this.tblReview.getTableHeader().repaint();
+		this.tabbedPane.setTitleAt(1, String.format(getLocale(),
+			msgBundle.getString("MoreDecimalWindow.tabReview.count"), this.reviewModel.getRowCount()));
+
+	} // end updateReviewHeadings()
+
+	/**
+	 * @param changes The staged changes to review, or null when there are none
+	 *                to review
+	 * @param targets The securities changing decimal places
+	 */
+	void showStagedChanges(StagedChanges changes, List<RescaleTarget> targets) {
+		this.reviewModel.setChanges(changes, targets);
+
+	} // end showStagedChanges(StagedChanges, List<RescaleTarget>)
+
 	/**
 	 * Invoked when an action occurs.
 	 *
@@ -226,11 +423,23 @@ public class MoreDecimalWindow extends JFrame
 
 			if (security != null) {
 				setNewDecimals(security.getDecimalPlaces());
+				this.btnAdd.setEnabled(true);
 				this.btnStage.setEnabled(false);
 				this.btnCommit.setEnabled(false);
 			}
 		}
 
+		if (source == this.btnAdd) {
+			addTarget();
+		}
+
+		if (source == this.btnRemove) {
+			for (RescaleTarget target : this.lstTargets.getSelectedValuesList()) {
+				this.targetModel.removeElement(target);
+			}
+			this.btnCommit.setEnabled(false);
+		}
+
 		if (source == this.btnStage && this.feature != null) {
 			this.feature.changeDecimals();
 		}
@@ -239,6 +448,35 @@ public class MoreDecimalWindow extends JFrame
 			this.feature.commitChanges();
 		}
 
+		if (source == this.btnLogFile) {
+			chooseLogFile();
+		}
+
+		if (source == this.btnScan && this.feature != null) {
+			this.feature.scanPrecision();
+		}
+
+		if (source == this.btnExport && this.feature != null) {
+			Path file = chooseChangeSetFile(true);
+
+			if (file != null) {
+				this.feature.exportChanges(file);
+			}
+		}
+
+		if (source == this.btnImport && this.feature != null) {
+			Path file = chooseChangeSetFile(false);
+
+			if (file != null) {
+				this.feature.importChanges(file);
+			}
+		}
+
+		if (source == this.btnCancel && this.feature != null) {
+			this.btnCancel.setEnabled(false);
+			this.feature.cancelWork();
+		}
+
 	} // end actionPerformed(ActionEvent)
 
 	public void focusGained(FocusEvent event) {
@@ -274,12 +512,109 @@ public class MoreDecimalWindow extends JFrame
 		return (CurrencyType) this.securityList.getSelectedItem();
 	} // end getSecurity()
 
+	/**
+	 * @param security The security to select for changing
+	 */
+	void selectSecurity(CurrencyType security) {
+		if (this.securityList.isEnabled()) {
+			this.securityList.setSelectedItem(security);
+		}
+
+	} // end selectSecurity(CurrencyType)
+
+	/**
+	 * @return The number typed in the decimals field so far, or -1 when there is none
+	 */
+	private int getTypedDecimals() {
+		try {
+
+			return Math.max(Integer.parseInt(this.fldDecimals.getText().trim()), -1);
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	} // end getTypedDecimals()
+
+	/**
+	 * Ask for a preview of whether the security fits the decimal places typed so far.
+	 */
+	private void requestPreview() {
+		CurrencyType security = getSecurity();
+		int decimals = getTypedDecimals();
+		this.lblPreview.setText("");
+
+		if (security != null && decimals >= 0 && this.feature != null) {
+			this.feature.previewDecimals(security, decimals);
+		}
+
+	} // end requestPreview()
+
+	/**
+	 * @param security The security previewed
+	 * @param decimals The decimal places previewed
+	 * @param rescaleResult A FixedPointScaler result code
+	 */
+	void showPreview(CurrencyType security, int decimals, int rescaleResult) {
+		// ignore answers to questions no longer being asked
+		if (security == getSecurity() && decimals == getTypedDecimals()) {
+			this.lblPreview.setText(msgBundle.getString(rescaleResult == RESCALE_OK
+				? "MoreDecimalWindow.preview.ok" : rescaleResult == RESCALE_OVERFLOW
+					? "MoreDecimalWindow.preview.overflow" : "MoreDecimalWindow.preview.rounding"));
+		}
+
+	} // end showPreview(CurrencyType, int, int)
+
+	/**
+	 * Add the selected security and new decimal places to the batch, replacing
+	 * any earlier entry for the same security.
+	 */
+	private void addTarget() {
+		CurrencyType security = getSecurity();
+
+		if (security != null) {
+			for (int i = this.targetModel.size() - 1; i >= 0; --i) {
+				if (this.targetModel.get(i).getSecurity() == security) {
+					this.targetModel.remove(i);
+				}
+			} // end for
+			this.targetModel.addElement(new RescaleTarget(security, getNewDecimals()));
+			this.btnStage.setEnabled(true);
+			this.btnCommit.setEnabled(false);
+		}
+
+	} // end addTarget()
+
+	/**
+	 * @return The batch of changes to stage, or just the selected security when
+	 *         the batch is empty
+	 */
+	public List<RescaleTarget> getTargets() {
+		List<RescaleTarget> targets = new ArrayList<>();
+
+		for (int i = 0; i < this.targetModel.size(); ++i) {
+			targets.add(this.targetModel.get(i));
+		}
+
+		if (targets.isEmpty()) {
+			targets.add(new RescaleTarget(getSecurity(), getNewDecimals()));
+		}
+
+		return targets;
+	} // end getTargets()
+
 	public int getNewDecimals() {
 		Number value = (Number) this.fldDecimals.getValue();
 
 		return value.intValue();
 	} // end getNewDecimals()
 
+	/**
+	 * @return true to stop verifying other accounts once any account fails
+	 */
+	public boolean isFailFast() {
+
+		return this.chkFailFast.isSelected();
+	} // end isFailFast()
+
 	private void setNewDecimals(int value) {
 		this.fldDecimals.setValue(value);
 
@@ -289,7 +624,7 @@ public class MoreDecimalWindow extends JFrame
 	 * @param text HTML text to append to the output log text area
 	 */
 	public void addText(String text) {
-		this.pnOutputLog.addText(text);
+		this.logSink.addText(text);
 
 	} // end addText(String)
 
@@ -297,10 +632,128 @@ public class MoreDecimalWindow extends JFrame
 	 * Clear the output log text area.
 	 */
 	void clearText() {
-		this.pnOutputLog.clearText();
+		this.logSink.clear();
 
 	} // end clearText()
 
+	/**
+	 * Ask for a file to stream the full output log to.
+	 */
+	private void chooseLogFile() {
+		JFileChooser chooser = new JFileChooser();
+
+		if (chooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
+			try {
+				this.logSink.streamToFile(chooser.getSelectedFile().toPath());
+			} catch (IOException e) {
+				addText(e.toString());
+			}
+		}
+
+	} // end chooseLogFile()
+
+	/**
+	 * @param save true to choose a file to write, false to choose one to read
+	 * @return The change set file chosen, or null when canceled
+	 */
+	private Path chooseChangeSetFile(boolean save) {
+		JFileChooser chooser = new JFileChooser();
+		int choice = save ? chooser.showSaveDialog(this) : chooser.showOpenDialog(this);
+
+		return choice == JFileChooser.APPROVE_OPTION ? chooser.getSelectedFile().toPath() : null;
+	} // end chooseChangeSetFile(boolean)
+
+	/**
+	 * @param profiles The profile of each security to show in a sortable table
+	 */
+	void showPrecisionReport(List<PrecisionProfile> profiles) {
+		if (this.precisionReport != null) {
+			this.precisionReport.goAway();
+		}
+		this.precisionReport = new PrecisionReportWindow(this, profiles);
+		this.precisionReport.setLocationRelativeTo(this);
+		this.precisionReport.setVisible(true);
+
+	} // end showPrecisionReport(List<PrecisionProfile>)
+
+	/**
+	 * @param numCommitted Number of transactions the interrupted commit applied
+	 * @param numEntries Number of transactions in the interrupted commit
+	 * @return RECOVER_RESUME, RECOVER_ROLL_BACK or RECOVER_LATER
+	 */
+	int askRecovery(int numCommitted, int numEntries) {
+		String[] options = { msgBundle.getString("MoreDecimalWindow.recovery.resume"),
+			msgBundle.getString("MoreDecimalWindow.recovery.rollBack"),
+			msgBundle.getString("MoreDecimalWindow.recovery.later") };
+		String message = "<html>" + String.format(getLocale(),
+			msgBundle.getString("MoreDecimalWindow.recovery.message"), numCommitted, numEntries);
+		int choice = JOptionPane.showOptionDialog(this, message,
+			msgBundle.getString("MoreDecimalWindow.recovery.title"), JOptionPane.DEFAULT_OPTION,
+			JOptionPane.WARNING_MESSAGE, null, options, options[RECOVER_LATER]);
+
+		return choice < 0 ? RECOVER_LATER : choice;
+	} // end askRecovery(int, int)
+
+	/**
+	 * @param busy true while a stage, commit or scan operation runs in the background
+	 */
+	void setBusy(boolean busy) {
+		this.securityList.setEnabled(!busy);
+		this.fldDecimals.setEnabled(!busy);
+		this.btnAdd.setEnabled(!busy && getSecurity() != null);
+		this.lstTargets.setEnabled(!busy);
+		this.btnRemove.setEnabled(!busy);
+		this.chkFailFast.setEnabled(!busy);
+		this.btnScan.setEnabled(!busy);
+		this.btnExport.setEnabled(!busy);
+		this.btnImport.setEnabled(!busy);
+		this.btnStage.setEnabled(!busy);
+		this.btnCommit.setEnabled(false);
+		this.btnCancel.setEnabled(busy);
+
+		if (busy) {
+			this.progressBar.setValue(0);
+			this.progressBar.setString("");
+		}
+
+	} // end setBusy(boolean)
+
+	/**
+	 * Allow the batch to be edited and staged again while a stage runs.
+	 */
+	void allowRestage() {
+		this.securityList.setEnabled(true);
+		this.fldDecimals.setEnabled(true);
+		this.btnAdd.setEnabled(getSecurity() != null);
+		this.lstTargets.setEnabled(true);
+		this.btnRemove.setEnabled(true);
+		this.btnStage.setEnabled(true);
+
+	} // end allowRestage()
+
+	/**
+	 * @param progressKey The resource bundle key for the progress text
+	 * @param unitsDone Number of units completed
+	 * @param totalUnits Total number of units
+	 * @param txnsDone Number of transactions processed so far
+	 * @param remainingMillis Estimated time remaining, or negative when unknown
+	 */
+	void showProgress(String progressKey, int unitsDone, int totalUnits, int txnsDone,
+			long remainingMillis) {
+		String eta = "";
+
+		if (remainingMillis >= 0 && unitsDone < totalUnits) {
+			long remainingSecs = (remainingMillis + 999) / 1000;
+			eta = String.format(getLocale(), msgBundle.getString("MoreDecimalWindow.progress.eta"),
+				remainingSecs / 60, remainingSecs % 60);
+		}
+		this.progressBar.setMaximum(totalUnits);
+		this.progressBar.setValue(unitsDone);
+		this.progressBar.setString(String.format(getLocale(), msgBundle.getString(progressKey),
+			unitsDone, totalUnits, txnsDone, eta));
+
+	} // end showProgress(String, int, int, int, long)
+
 	/**
 	 * @param b true to enable the button, otherwise false
 	 */
@@ -315,11 +768,37 @@ public class MoreDecimalWindow extends JFrame
 	public void disableActions() {
 		this.securityList.setEnabled(false);
 		this.fldDecimals.setEnabled(false);
+		this.btnAdd.setEnabled(false);
+		this.lstTargets.setEnabled(false);
+		this.btnRemove.setEnabled(false);
+		this.chkFailFast.setEnabled(false);
+		this.btnExport.setEnabled(false);
+		this.btnImport.setEnabled(false);
 		this.btnStage.setEnabled(false);
 		this.btnCommit.setEnabled(false);
 
 	} // end disableActions()
 
+	/**
+	 * Paints this window, recording how long the first paint took after creation.
+	 *
+	 * @param g
+	 */
+	public void paint(Graphics g) {
+		super.paint(g);
+
+		if (this.firstPaint != null) {
+			this.firstPaint.end();
+
+			if (this.firstPaint.shouldCommit()) {
+				this.firstPaint.window = getTitle();
+				this.firstPaint.commit();
+			}
+			this.firstPaint = null;
+		}
+
+	} // end paint(Graphics)
+
 	/**
 	 * Processes events on this window.
 	 *
@@ -347,6 +826,12 @@ public class MoreDecimalWindow extends JFrame
 		Dimension winSize = getSize();
 		System.err.format(getLocale(), "Closing %s with width=%.0f, height=%.0f.%n",
 			getTitle(), winSize.getWidth(), winSize.getHeight());
+		this.logSink.closeFile();
+		this.securityModel.releaseResources();
+
+		if (this.precisionReport != null) {
+			this.precisionReport = this.precisionReport.goAway();
+		}
 		setVisible(false);
 		dispose();
 
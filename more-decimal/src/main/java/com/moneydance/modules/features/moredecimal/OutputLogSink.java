@@ -0,0 +1,328 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.moneydance.modules.features.moredecimal;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.StringJoiner;
+
+import javax.swing.Timer;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Element;
+import javax.swing.text.StyleConstants;
+import javax.swing.text.html.HTML;
+import javax.swing.text.html.HTMLDocument;
+
+import com.leastlogic.swing.util.HTMLPane;
+
+/**
+ * Buffered sink for output log messages. Messages may arrive from any thread;
+ * they are batched and appended to the HTML pane at most once per frame
+ * interval on the event dispatch thread, each batch as its own element. Only
+ * the most recent lines are kept in the pane: once there are enough later
+ * lines, the oldest batches are removed from the document, and a marker in
+ * front of the rest counts the earlier lines omitted. Each batch and the marker
+ * are found by their own id, whatever else the document holds. The full log can also be streamed
+ * to a file.
+ */
+public class OutputLogSink {
+	private HTMLPane pane;
+	private Locale locale;
+	private String omittedFormat;
+	private Timer flushTimer;
+
+	// ring buffer of the lines kept in the pane
+	private String[] lines;
+	private int firstLine = 0;
+	private int numLines = 0;
+	private long totalLines = 0;
+
+	// number of the newest lines not yet appended to the pane
+	private int pendingLines = 0;
+	private boolean pendingAppend = false;
+	private Writer logFile = null;
+
+	// the batches in the pane, oldest first, and its marker; event dispatch thread only
+	private ArrayDeque<PaneBatch> paneBatches = new ArrayDeque<>();
+	private int paneLines = 0;
+	private String markerId = null;
+	private long paneOmitted = 0;
+	private long paneDivs = 0;
+
+	private static final String LINE_BREAK = "<br>";
+	private static final String DIV_ID_PREFIX = "moredecimal-log-";
+	private static final int FRAME_INTERVAL = 50; // milliseconds
+	private static final int DEFAULT_CAPACITY = 2000; // lines
+
+	/**
+	 * Sole constructor.
+	 *
+	 * @param pane The HTML pane to show the log in
+	 * @param locale The locale to format the omitted lines marker with
+	 * @param omittedFormat The format of the omitted lines marker
+	 */
+	public OutputLogSink(HTMLPane pane, Locale locale, String omittedFormat) {
+		this.pane = pane;
+		this.locale = locale;
+		this.omittedFormat = omittedFormat;
+		this.lines = new String[DEFAULT_CAPACITY];
+		this.flushTimer = new Timer(FRAME_INTERVAL, event -> flush());
+		this.flushTimer.setRepeats(false);
+
+	} // end (HTMLPane, Locale, String) constructor
+
+	/**
+	 * @param text HTML text to append to the output log; may be called from any thread
+	 */
+	public void addText(String text) {
+		synchronized (this) {
+			if (this.numLines == this.lines.length) {
+				// drop the oldest line; the pane drops it once enough later lines are shown
+				this.firstLine = (this.firstLine + 1) % this.lines.length;
+				--this.numLines;
+			}
+			this.lines[(this.firstLine + this.numLines++) % this.lines.length] = text;
+			++this.totalLines;
+			++this.pendingLines;
+			writeToFile(text);
+
+			if (this.pendingAppend)
+				return;
+			this.pendingAppend = true;
+		}
+		this.flushTimer.restart();
+
+	} // end addText(String)
+
+	/**
+	 * Append batched lines to the pane; called on the event dispatch thread.
+	 */
+	private void flush() {
+		StringJoiner text = newJoiner();
+		int newLines;
+		long total;
+
+		synchronized (this) {
+			// pending lines dropped from the ring buffer already are just omitted
+			newLines = Math.min(this.pendingLines, this.numLines);
+
+			for (int i = this.numLines - newLines; i < this.numLines; ++i) {
+				text.add(this.lines[(this.firstLine + i) % this.lines.length]);
+			}
+			total = this.totalLines;
+			this.pendingLines = 0;
+			this.pendingAppend = false;
+			flushFile();
+		}
+
+		if (newLines > 0) {
+			HTMLDocument doc = (HTMLDocument) this.pane.getDocument();
+			try {
+				this.paneBatches.addLast(new PaneBatch(insertDiv(doc, null, text.toString()),
+					newLines));
+				this.paneLines += newLines;
+				trimPane(doc, total);
+				this.pane.setCaretPosition(doc.getLength());
+			} catch (BadLocationException | IOException e) {
+				e.printStackTrace(System.err);
+			}
+		}
+
+	} // end flush()
+
+	/**
+	 * Remove the oldest batches from the head of the pane while the lines after
+	 * them still fill it, then show how many lines are omitted, if any.
+	 *
+	 * @param doc The pane's document
+	 * @param total The number of lines added since the log was last cleared
+	 */
+	private void trimPane(HTMLDocument doc, long total)
+			throws BadLocationException, IOException {
+		int numDropped = 0;
+		int droppedLines = 0;
+
+		for (PaneBatch batch : this.paneBatches) {
+			if (this.paneLines - droppedLines - batch.numLines < this.lines.length)
+				break;
+			droppedLines += batch.numLines;
+			++numDropped;
+		} // end for
+		long omitted = total - (this.paneLines - droppedLines);
+
+		if (omitted == this.paneOmitted)
+			return; // nothing dropped, nor missed while the pane was behind
+
+		if (this.markerId != null) {
+			doc.removeElement(doc.getElement(this.markerId));
+		}
+		for (int i = 0; i < numDropped; ++i) {
+			// whole elements, since removing their text would merge the next batch into them
+			doc.removeElement(doc.getElement(this.paneBatches.removeFirst().divId));
+		}
+		this.paneLines -= droppedLines;
+		this.markerId = insertDiv(doc, this.paneBatches.getFirst().divId,
+			String.format(this.locale, this.omittedFormat, omitted));
+		this.paneOmitted = omitted;
+
+	} // end trimPane(HTMLDocument, long)
+
+	/**
+	 * Insert a division with its own id, so it can be found again whatever
+	 * else the document holds. Edits can rebuild the elements around them, so
+	 * the id, not the element, is what stays valid.
+	 *
+	 * @param doc The pane's document
+	 * @param beforeId The id of the division to insert before, or null to append
+	 *                 to the body
+	 * @param html The HTML contents of the division
+	 * @return The new division's id
+	 */
+	private String insertDiv(HTMLDocument doc, String beforeId, String html)
+			throws BadLocationException, IOException {
+		String id = DIV_ID_PREFIX + ++this.paneDivs;
+		String div = "<div id=\"" + id + "\">" + html + "</div>";
+
+		if (beforeId == null) {
+			doc.insertBeforeEnd(bodyOf(doc), div);
+		} else {
+			doc.insertBeforeStart(doc.getElement(beforeId), div);
+		}
+
+		return id;
+	} // end insertDiv(HTMLDocument, String, String)
+
+	/**
+	 * @param doc An HTML document
+	 * @return The document's body element
+	 */
+	private static Element bodyOf(HTMLDocument doc) {
+
+		return doc.getElement(doc.getDefaultRootElement(), StyleConstants.NameAttribute,
+			HTML.Tag.BODY);
+	} // end bodyOf(HTMLDocument)
+
+	/**
+	 * Clear the output log; called on the event dispatch thread.
+	 */
+	public void clear() {
+		synchronized (this) {
+			this.firstLine = 0;
+			this.numLines = 0;
+			this.totalLines = 0;
+			this.pendingLines = 0;
+		}
+		this.paneBatches.clear();
+		this.paneLines = 0;
+		this.markerId = null;
+		this.paneOmitted = 0;
+		this.pane.clearText();
+
+	} // end clear()
+
+	/**
+	 * Write the retained lines, and all lines added from now on, to a file.
+	 *
+	 * @param file The file to write the log to
+	 */
+	public synchronized void streamToFile(Path file) throws IOException {
+		closeFile();
+		this.logFile = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+
+		for (int i = 0; i < this.numLines; ++i) {
+			writeToFile(this.lines[(this.firstLine + i) % this.lines.length]);
+		}
+		flushFile();
+
+	} // end streamToFile(Path)
+
+	/**
+	 * @param text HTML text to write as plain text lines to the log file, if any
+	 */
+	private void writeToFile(String text) {
+		if (this.logFile != null) {
+			try {
+				this.logFile.write(text.replace(LINE_BREAK, System.lineSeparator())
+					.replaceAll("<[^>]*>", ""));
+				this.logFile.write(System.lineSeparator());
+			} catch (IOException e) {
+				logFileFailed(e);
+			}
+		}
+
+	} // end writeToFile(String)
+
+	/**
+	 * Push any buffered log file text to disk.
+	 */
+	private void flushFile() {
+		if (this.logFile != null) {
+			try {
+				this.logFile.flush();
+			} catch (IOException e) {
+				logFileFailed(e);
+			}
+		}
+
+	} // end flushFile()
+
+	/**
+	 * @param e The problem writing to the log file
+	 */
+	private void logFileFailed(IOException e) {
+		e.printStackTrace(System.err);
+		closeFile();
+
+	} // end logFileFailed(IOException)
+
+	/**
+	 * Stop writing to the log file, if any.
+	 */
+	public synchronized void closeFile() {
+		if (this.logFile != null) {
+			try {
+				this.logFile.close();
+			} catch (IOException e) {
+				e.printStackTrace(System.err);
+			}
+			this.logFile = null;
+		}
+
+	} // end closeFile()
+
+	/**
+	 * Class to hold a batch of lines appended to the pane.
+	 */
+	private static class PaneBatch {
+		String divId;
+		int numLines;
+
+		/**
+		 * Sole constructor.
+		 *
+		 * @param divId The id of the batch's division in the pane
+		 * @param numLines The number of lines in the batch
+		 */
+		PaneBatch(String divId, int numLines) {
+			this.divId = divId;
+			this.numLines = numLines;
+
+		} // end (String, int) constructor
+
+	} // end class PaneBatch
+
+	/**
+	 * @return A joiner for HTML lines
+	 */
+	private static StringJoiner newJoiner() {
+
+		return new StringJoiner(LINE_BREAK);
+	} // end newJoiner()
+
+} // end class OutputLogSink
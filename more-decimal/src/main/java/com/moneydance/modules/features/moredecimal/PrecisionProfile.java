@@ -0,0 +1,121 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.moneydance.modules.features.moredecimal;
+
+import com.infinitekind.moneydance.model.CurrencyType;
+
+/**
+ * The range of share values and balances found for one security across all its
+ * security accounts, and the numbers of decimal places that range allows.
+ */
+public class PrecisionProfile {
+	private CurrencyType security;
+	private int decimalPlaces;
+	private int numAcnts = 0;
+	private int numTxns = 0;
+	private long maxAbsValue = 0;
+	private long maxAbsBalance = 0;
+	private int minTrailingZeros;
+
+	/**
+	 * Sole constructor.
+	 *
+	 * @param security The security to profile
+	 */
+	public PrecisionProfile(CurrencyType security) {
+		this.security = security;
+		this.decimalPlaces = security.getDecimalPlaces();
+		this.minTrailingZeros = this.decimalPlaces;
+
+	} // end (CurrencyType) constructor
+
+	/**
+	 * Fold in the findings from one more security account.
+	 *
+	 * @param summary The summary of the security account
+	 */
+	public void addAccount(AccountSummary summary) {
+		++this.numAcnts;
+		this.numTxns += summary.getNumTxns();
+		this.maxAbsValue = Math.max(this.maxAbsValue, summary.getMaxAbsValue());
+		this.maxAbsBalance = Math.max(this.maxAbsBalance, summary.getMaxAbsBalance());
+		this.minTrailingZeros = Math.min(this.minTrailingZeros, summary.getMinTrailingZeros());
+
+	} // end addAccount(AccountSummary)
+
+	/**
+	 * @return The security profiled
+	 */
+	public CurrencyType getSecurity() {
+
+		return this.security;
+	} // end getSecurity()
+
+	/**
+	 * @return The security's current number of decimal places
+	 */
+	public int getDecimalPlaces() {
+
+		return this.decimalPlaces;
+	} // end getDecimalPlaces()
+
+	/**
+	 * @return Number of security accounts holding the security
+	 */
+	public int getNumAccounts() {
+
+		return this.numAcnts;
+	} // end getNumAccounts()
+
+	/**
+	 * @return Number of transactions in those accounts
+	 */
+	public int getNumTxns() {
+
+		return this.numTxns;
+	} // end getNumTxns()
+
+	/**
+	 * @return Largest magnitude of any share value
+	 */
+	public long getMaxAbsValue() {
+
+		return this.maxAbsValue;
+	} // end getMaxAbsValue()
+
+	/**
+	 * @return Largest magnitude of any share balance
+	 */
+	public long getMaxAbsBalance() {
+
+		return this.maxAbsBalance;
+	} // end getMaxAbsBalance()
+
+	/**
+	 * @return Fewest trailing decimal zeros of any share value, at most the
+	 *         current number of decimal places
+	 */
+	public int getMinTrailingZeros() {
+
+		return this.minTrailingZeros;
+	} // end getMinTrailingZeros()
+
+	/**
+	 * @return The fewest decimal places possible without rounding any value
+	 */
+	public int getMinFeasibleDecimals() {
+
+		return this.decimalPlaces - this.minTrailingZeros;
+	} // end getMinFeasibleDecimals()
+
+	/**
+	 * @return The most decimal places possible without overflowing any value
+	 */
+	public int getMaxFeasibleDecimals() {
+		long maxAbs = Math.max(this.maxAbsValue, this.maxAbsBalance);
+
+		return this.decimalPlaces + FixedPointScaler.maxRightMovePlaces(maxAbs);
+	} // end getMaxFeasibleDecimals()
+
+} // end class PrecisionProfile
@@ -0,0 +1,171 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.moneydance.modules.features.moredecimal;
+
+import static com.moneydance.modules.features.moredecimal.MoreDecimalInterface.baseMessageBundleName;
+
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.ResourceBundle;
+
+import javax.swing.JFrame;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.WindowConstants;
+import javax.swing.border.EmptyBorder;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Window showing the feasible decimal places of every security in a sortable
+ * table. Double click a row to select that security in the more decimal window.
+ */
+public class PrecisionReportWindow extends JFrame {
+
+	private static class PrecisionTableModel extends AbstractTableModel {
+		private List<PrecisionProfile> profiles;
+		private static final String[] COLUMN_KEYS = { "security", "ticker", "decimals",
+			"accounts", "transactions", "maxValue", "maxBalance", "trailingZeros", "minDecimals",
+			"maxDecimals" };
+		private static final Class<?>[] COLUMN_CLASSES = { String.class, String.class,
+			Integer.class, Integer.class, Integer.class, BigDecimal.class, BigDecimal.class,
+			Integer.class, Integer.class, Integer.class };
+		private static final long serialVersionUID = 4318205936287140523L;
+
+		public PrecisionTableModel(List<PrecisionProfile> profiles) {
+			this.profiles = profiles;
+
+		} // end (List<PrecisionProfile>) constructor
+
+		public int getRowCount() {
+
+			return this.profiles.size();
+		} // end getRowCount()
+
+		public int getColumnCount() {
+
+			return COLUMN_KEYS.length;
+		} // end getColumnCount()
+
+		public String getColumnName(int column) {
+
+			return msgBundle.getString("PrecisionReportWindow.column." + COLUMN_KEYS[column]);
+		} // end getColumnName(int)
+
+		public Class<?> getColumnClass(int column) {
+
+			return COLUMN_CLASSES[column];
+		} // end getColumnClass(int)
+
+		public Object getValueAt(int row, int column) {
+			PrecisionProfile profile = this.profiles.get(row);
+
+			switch (column) {
+			case 0:
+				return profile.getSecurity().getName();
+			case 1:
+				return profile.getSecurity().getTickerSymbol();
+			case 2:
+				return profile.getDecimalPlaces();
+			case 3:
+				return profile.getNumAccounts();
+			case 4:
+				return profile.getNumTxns();
+			case 5:
+				return BigDecimal.valueOf(profile.getMaxAbsValue(), profile.getDecimalPlaces());
+			case 6:
+				return BigDecimal.valueOf(profile.getMaxAbsBalance(), profile.getDecimalPlaces());
+			case 7:
+				return profile.getMinTrailingZeros();
+			case 8:
+				return profile.getMinFeasibleDecimals();
+			default:
+				return profile.getMaxFeasibleDecimals();
+			}
+		} // end getValueAt(int, int)
+
+		public PrecisionProfile getProfile(int row) {
+
+			return this.profiles.get(row);
+		} // end getProfile(int)
+
+	} // end class PrecisionTableModel
+
+	private MoreDecimalWindow decimalWindow;
+	private JTable table;
+	private PrecisionTableModel tableModel;
+
+	private static final ResourceBundle msgBundle = ResourceBundle.getBundle(baseMessageBundleName);
+	private static final long serialVersionUID = -2176340628371914480L;
+
+	/**
+	 * Create the frame.
+	 *
+	 * @param decimalWindow The window to select securities in
+	 * @param profiles The profile of each security
+	 */
+	public PrecisionReportWindow(MoreDecimalWindow decimalWindow, List<PrecisionProfile> profiles) {
+		super(msgBundle.getString("PrecisionReportWindow.window.title"));
+		this.decimalWindow = decimalWindow;
+		this.tableModel = new PrecisionTableModel(profiles);
+		initComponents();
+		wireEvents();
+
+	} // end (MoreDecimalWindow, List<PrecisionProfile>) constructor
+
+	/**
+	 * Initialize the swing components.
+	 */
+	private void initComponents() {
+		setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+		setSize(760, 400);
+
+		this.table = new JTable(this.tableModel);
+		this.table.setAutoCreateRowSorter(true);
+		this.table.setToolTipText(msgBundle.getString("PrecisionReportWindow.table.toolTipText"));
+		JScrollPane scrollPane = new JScrollPane(this.table);
+		scrollPane.setBorder(new EmptyBorder(5, 5, 5, 5));
+		setContentPane(scrollPane);
+
+	} // end initComponents()
+
+	private void wireEvents() {
+		this.table.addMouseListener(new MouseAdapter() {
+			public void mouseClicked(MouseEvent event) {
+				if (event.getClickCount() == 2) {
+					selectRow(PrecisionReportWindow.this.table.rowAtPoint(event.getPoint()));
+				}
+
+			} // end mouseClicked(MouseEvent)
+		});
+
+	} // end wireEvents()
+
+	/**
+	 * @param viewRow The table row, in sorted order, to select in the more decimal window
+	 */
+	private void selectRow(int viewRow) {
+		if (viewRow >= 0) {
+			PrecisionProfile profile = this.tableModel.getProfile(
+				this.table.convertRowIndexToModel(viewRow));
+			this.decimalWindow.selectSecurity(profile.getSecurity());
+			this.decimalWindow.toFront();
+		}
+
+	} // end selectRow(int)
+
+	/**
+	 * Remove this frame.
+	 *
+	 * @return null
+	 */
+	public PrecisionReportWindow goAway() {
+		setVisible(false);
+		dispose();
+
+		return null;
+	} // end goAway()
+
+} // end class PrecisionReportWindow
@@ -0,0 +1,96 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.moneydance.modules.features.moredecimal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.infinitekind.moneydance.model.Account;
+import com.infinitekind.moneydance.model.AccountBook;
+import com.infinitekind.moneydance.model.CurrencyType;
+
+/**
+ * Scans every security in an account book, concurrently, to find the range of
+ * decimal places each one could change to. Each security account's
+ * transactions are read in a single pass, and only when the account has no
+ * cached summary.
+ */
+public class PrecisionScanner {
+	private AccountBook book;
+	private SecurityAccountIndex accountIndex;
+	private AccountSummaryCache summaryCache;
+	private AtomicInteger securitiesScanned = new AtomicInteger();
+	private AtomicInteger txnsScanned = new AtomicInteger();
+
+	/**
+	 * Sole constructor.
+	 *
+	 * @param accountBook Moneydance account book
+	 * @param accountIndex Index of the security accounts in the account book
+	 * @param summaryCache Where to find and keep a summary of each security account
+	 */
+	public PrecisionScanner(AccountBook accountBook, SecurityAccountIndex accountIndex,
+			AccountSummaryCache summaryCache) {
+		this.book = accountBook;
+		this.accountIndex = accountIndex;
+		this.summaryCache = summaryCache;
+
+	} // end (AccountBook, SecurityAccountIndex, AccountSummaryCache) constructor
+
+	/**
+	 * @param progress Where to report progress and check for cancel requests
+	 * @return A profile for each security in currency table order, or null when canceled
+	 */
+	public List<PrecisionProfile> scan(ProgressReporter progress) {
+		List<PrecisionProfile> profiles = new ArrayList<>();
+
+		for (CurrencyType currency : this.book.getCurrencies()) {
+			if (currency.getCurrencyType() == CurrencyType.Type.SECURITY) {
+				profiles.add(new PrecisionProfile(currency));
+			}
+		} // end for
+		int numSecurities = profiles.size();
+		this.securitiesScanned.set(0);
+		this.txnsScanned.set(0);
+		List<ForkJoinTask<?>> tasks = new ArrayList<>(numSecurities);
+
+		for (PrecisionProfile profile : profiles) {
+			tasks.add(ForkJoinPool.commonPool().submit(
+				() -> scanSecurity(profile, numSecurities, progress)));
+		} // end for
+
+		for (ForkJoinTask<?> task : tasks) {
+			task.join();
+		} // end for
+
+		return progress.isCancelRequested() ? null : profiles;
+	} // end scan(ProgressReporter)
+
+	/**
+	 * Profile one security; may run concurrently with other securities.
+	 *
+	 * @param profile Where to fold in each account's findings
+	 * @param numSecurities Total number of securities being scanned
+	 * @param progress Where to report progress and check for cancel requests
+	 */
+	private void scanSecurity(PrecisionProfile profile, int numSecurities,
+			ProgressReporter progress) {
+		int txnCount = 0;
+
+		for (Account securityAccount : this.accountIndex.getAccounts(profile.getSecurity())) {
+			if (progress.isCancelRequested())
+				return;
+			AccountSummary summary = this.summaryCache.getSummary(securityAccount);
+			profile.addAccount(summary);
+			txnCount += summary.getNumTxns();
+		} // end for
+		progress.reportProgress(this.securitiesScanned.incrementAndGet(), numSecurities,
+			this.txnsScanned.addAndGet(txnCount));
+
+	} // end scanSecurity(PrecisionProfile, int, ProgressReporter)
+
+} // end class PrecisionScanner
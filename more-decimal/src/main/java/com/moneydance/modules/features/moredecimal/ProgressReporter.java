@@ -0,0 +1,24 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.moneydance.modules.features.moredecimal;
+
+/**
+ * Interface the more decimal processor uses to report progress of long running
+ * operations and to learn when it should stop.
+ */
+public interface ProgressReporter {
+
+	/**
+	 * @param unitsDone Number of units (accounts or transactions) completed
+	 * @param totalUnits Total number of units to process
+	 * @param txnsDone Number of transactions processed so far
+	 */
+	void reportProgress(int unitsDone, int totalUnits, int txnsDone);
+
+	/**
+	 * @return True when the operation should stop at its next safe point
+	 */
+	boolean isCancelRequested();
+
+} // end interface ProgressReporter
@@ -0,0 +1,151 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.moneydance.modules.features.moredecimal;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Headless stand-in for the more decimal window. Collects the output log
+ * messages, echoing them to standard error as they arrive, and writes a plain
+ * text or JSON report at the end of a batch run.
+ */
+public class ReportLog implements MoreDecimalInterface {
+	private Locale locale;
+	private List<String> messages = new ArrayList<>();
+
+	/**
+	 * Sole constructor.
+	 *
+	 * @param locale The locale to format messages with
+	 */
+	public ReportLog(Locale locale) {
+		this.locale = locale;
+
+	} // end (Locale) constructor
+
+	/**
+	 * @param text HTML text to append to the output log
+	 */
+	public synchronized void addText(String text) {
+		String plainText = toPlainText(text);
+		this.messages.add(plainText);
+		System.err.println(plainText);
+
+	} // end addText(String)
+
+	/**
+	 * @return The Locale object that is associated with this log
+	 */
+	public Locale getLocale() {
+
+		return this.locale;
+	} // end getLocale()
+
+	/**
+	 * @param out Where to write the report
+	 * @param targets The securities changed
+	 * @param committed True when the changes were committed
+	 */
+	public synchronized void writeText(Writer out, List<RescaleTarget> targets,
+			boolean committed) throws IOException {
+		PrintWriter writer = new PrintWriter(out);
+
+		for (String message : this.messages) {
+			writer.println(message);
+		}
+		writer.println();
+
+		for (RescaleTarget target : targets) {
+			writer.format(this.locale, "%s\t%d decimal places\t%d accounts\t%d transactions%n",
+				target.getSecurity().getName(), target.getNewDecimalPlaces(),
+				target.getNumAccounts(), target.getNumTxns());
+		}
+		writer.println(committed ? "Committed" : "Not committed");
+		writer.flush();
+
+	} // end writeText(Writer, List<RescaleTarget>, boolean)
+
+	/**
+	 * @param out Where to write the report
+	 * @param targets The securities changed
+	 * @param committed True when the changes were committed
+	 */
+	public synchronized void writeJson(Writer out, List<RescaleTarget> targets,
+			boolean committed) throws IOException {
+		PrintWriter writer = new PrintWriter(out);
+		writer.println("{");
+		writer.println("  \"targets\": [");
+
+		for (int i = 0; i < targets.size(); ++i) {
+			RescaleTarget target = targets.get(i);
+			writer.format(Locale.ROOT,
+				"    {\"security\": %s, \"decimalPlaces\": %d, \"accounts\": %d, \"transactions\": %d}%s%n",
+				jsonString(target.getSecurity().getName()), target.getNewDecimalPlaces(),
+				target.getNumAccounts(), target.getNumTxns(), i + 1 < targets.size() ? "," : "");
+		} // end for
+		writer.println("  ],");
+		writer.format("  \"committed\": %b,%n", committed);
+		writer.println("  \"messages\": [");
+
+		for (int i = 0; i < this.messages.size(); ++i) {
+			writer.format("    %s%s%n", jsonString(this.messages.get(i)),
+				i + 1 < this.messages.size() ? "," : "");
+		}
+		writer.println("  ]");
+		writer.println("}");
+		writer.flush();
+
+	} // end writeJson(Writer, List<RescaleTarget>, boolean)
+
+	/**
+	 * @param text HTML text
+	 * @return The text with line breaks in place of break tags and no other tags
+	 */
+	private static String toPlainText(String text) {
+
+		return text.replace("<br>", System.lineSeparator()).replaceAll("<[^>]*>", "");
+	} // end toPlainText(String)
+
+	/**
+	 * @param text
+	 * @return The text as a quoted JSON string
+	 */
+	private static String jsonString(String text) {
+		StringBuilder sb = new StringBuilder(text.length() + 2).append('"');
+
+		for (char c : text.toCharArray()) {
+			switch (c) {
+			case '"':
+				sb.append("\\\"");
+				break;
+			case '\\':
+				sb.append("\\\\");
+				break;
+			case '\n':
+				sb.append("\\n");
+				break;
+			case '\r':
+				sb.append("\\r");
+				break;
+			case '\t':
+				sb.append("\\t");
+				break;
+			default:
+				if (c < ' ') {
+					sb.append(String.format("\\u%04x", (int) c));
+				} else {
+					sb.append(c);
+				}
+			}
+		} // end for
+
+		return sb.append('"').toString();
+	} // end jsonString(String)
+
+} // end class ReportLog
@@ -0,0 +1,111 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.moneydance.modules.features.moredecimal;
+
+import com.infinitekind.moneydance.model.CurrencyType;
+
+/**
+ * A security and the number of decimal places it should change to, along with
+ * the tally of what was staged for it.
+ */
+public class RescaleTarget {
+	private CurrencyType security;
+	private int newDecimalPlaces;
+	private int rightMovePlaces = 0;
+	private int numAcnts = 0;
+	private int numTxns = 0;
+
+	/**
+	 * Sole constructor.
+	 *
+	 * @param security
+	 * @param newDecimalPlaces
+	 */
+	public RescaleTarget(CurrencyType security, int newDecimalPlaces) {
+		this.security = security;
+		this.newDecimalPlaces = newDecimalPlaces;
+
+	} // end (CurrencyType, int) constructor
+
+	/**
+	 * @return The security to change
+	 */
+	public CurrencyType getSecurity() {
+
+		return this.security;
+	} // end getSecurity()
+
+	/**
+	 * @return The new number of places past the decimal point
+	 */
+	public int getNewDecimalPlaces() {
+
+		return this.newDecimalPlaces;
+	} // end getNewDecimalPlaces()
+
+	/**
+	 * @return Number of places to move the decimal point right (negative for left)
+	 */
+	public int getRightMovePlaces() {
+
+		return this.rightMovePlaces;
+	} // end getRightMovePlaces()
+
+	/**
+	 * @return Number of security accounts staged for this security
+	 */
+	public int getNumAccounts() {
+
+		return this.numAcnts;
+	} // end getNumAccounts()
+
+	/**
+	 * @return Number of transactions staged for this security
+	 */
+	public int getNumTxns() {
+
+		return this.numTxns;
+	} // end getNumTxns()
+
+	/**
+	 * Tally a verified security account.
+	 *
+	 * @param txns Number of transactions staged for the account
+	 */
+	void addAccount(int txns) {
+		++this.numAcnts;
+		this.numTxns += txns;
+
+	} // end addAccount(int)
+
+	/**
+	 * Clear the tally of what was staged and note the security's current decimal
+	 * places before staging begins.
+	 */
+	void startStaging() {
+		this.rightMovePlaces = this.newDecimalPlaces - this.security.getDecimalPlaces();
+		this.numAcnts = 0;
+		this.numTxns = 0;
+
+	} // end startStaging()
+
+	/**
+	 * Change the security to the new number of decimal places.
+	 */
+	void applyDecimalPlaces() {
+		this.security.setEditingMode();
+		this.security.setDecimalPlaces(this.newDecimalPlaces);
+		this.security.syncItem();
+
+	} // end applyDecimalPlaces()
+
+	/**
+	 * @return Text to display for this target in a list
+	 */
+	public String toString() {
+
+		return this.security.getName() + " \u2192 " + this.newDecimalPlaces;
+	} // end toString()
+
+} // end class RescaleTarget
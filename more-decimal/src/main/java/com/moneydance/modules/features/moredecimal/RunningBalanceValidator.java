@@ -0,0 +1,167 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.moneydance.modules.features.moredecimal;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.infinitekind.moneydance.model.AbstractTxn;
+import com.infinitekind.moneydance.model.Account;
+
+/**
+ * Provides the share balance of a security account as of any date from a
+ * single sorted pass over the account's transactions, in place of walking the
+ * account history once per transaction.
+ */
+public class RunningBalanceValidator {
+	private int[] dates;
+	private long[] dayEndBalances;
+	private int numDates = 0;
+	private long startBalance;
+
+	/**
+	 * Constructor for a Moneydance security account.
+	 *
+	 * @param securityAccount The account the transactions belong to
+	 * @param txnLst All the transactions in that account
+	 */
+	public RunningBalanceValidator(Account securityAccount, List<AbstractTxn> txnLst) {
+		this(txnDates(txnLst), txnValues(txnLst), txnLst.size(),
+			securityAccount.getStartBalance());
+
+	} // end (Account, List<AbstractTxn>) constructor
+
+	/**
+	 * Constructor for transactions already copied to primitive arrays.
+	 *
+	 * @param txnDates The date of each transaction
+	 * @param txnValues The share value of each transaction
+	 * @param numTxns The number of transactions in the arrays
+	 * @param startBalance The share balance before any transactions
+	 */
+	public RunningBalanceValidator(int[] txnDates, long[] txnValues, int numTxns,
+			long startBalance) {
+		this.dates = new int[numTxns];
+		this.dayEndBalances = new long[numTxns];
+		this.startBalance = startBalance;
+		long[] order = dateOrder(txnDates, numTxns);
+		long balance = startBalance;
+
+		for (int i = 0; i < numTxns; ++i) {
+			int index = order == null ? i : (int) order[i];
+			int txnDate = txnDates[index];
+			balance += txnValues[index];
+
+			if (this.numDates > 0 && this.dates[this.numDates - 1] == txnDate) {
+				// same date as the prior transaction; update that day's ending balance
+				this.dayEndBalances[this.numDates - 1] = balance;
+			} else {
+				this.dates[this.numDates] = txnDate;
+				this.dayEndBalances[this.numDates++] = balance;
+			}
+		} // end for
+
+	} // end (int[], long[], int, long) constructor
+
+	/**
+	 * @param txnDates The date of each transaction
+	 * @param numTxns The number of transactions
+	 * @return Transaction indexes in date order (in the low 32 bits), or null when
+	 *         the transactions are already in date order
+	 */
+	private static long[] dateOrder(int[] txnDates, int numTxns) {
+		int i = 1;
+
+		while (i < numTxns && txnDates[i - 1] <= txnDates[i]) {
+			++i;
+		}
+		if (i >= numTxns)
+			return null;
+
+		// pack date above index so one primitive sort orders by date, then index
+		long[] order = new long[numTxns];
+
+		for (i = 0; i < numTxns; ++i) {
+			order[i] = ((long) txnDates[i] << 32) | i;
+		}
+		Arrays.sort(order);
+
+		for (i = 0; i < numTxns; ++i) {
+			order[i] &= 0xFFFFFFFFL;
+		}
+
+		return order;
+	} // end dateOrder(int[], int)
+
+	/**
+	 * @param txnLst Transactions
+	 * @return The date of each transaction
+	 */
+	private static int[] txnDates(List<AbstractTxn> txnLst) {
+		int[] dates = new int[txnLst.size()];
+		int i = 0;
+
+		for (AbstractTxn txn : txnLst) {
+			dates[i++] = txn.getDateInt();
+		}
+
+		return dates;
+	} // end txnDates(List<AbstractTxn>)
+
+	/**
+	 * @param txnLst Transactions
+	 * @return The share value of each transaction
+	 */
+	private static long[] txnValues(List<AbstractTxn> txnLst) {
+		long[] values = new long[txnLst.size()];
+		int i = 0;
+
+		for (AbstractTxn txn : txnLst) {
+			values[i++] = txn.getValue();
+		}
+
+		return values;
+	} // end txnValues(List<AbstractTxn>)
+
+	/**
+	 * @param date The date of interest
+	 * @return The share balance after all transactions on or before the date
+	 */
+	public long getBalanceAsOfDate(int date) {
+		int index = Arrays.binarySearch(this.dates, 0, this.numDates, date);
+
+		if (index < 0) {
+			// use the latest date prior to the date of interest
+			index = -index - 2;
+		}
+
+		return index < 0 ? this.startBalance : this.dayEndBalances[index];
+	} // end getBalanceAsOfDate(int)
+
+	/**
+	 * @return The largest magnitude of the start balance or any day's ending balance
+	 */
+	public long getMaxAbsBalance() {
+		long maxAbs = FixedPointScaler.magnitude(this.startBalance);
+
+		for (int i = 0; i < this.numDates; ++i) {
+			maxAbs = Math.max(maxAbs, FixedPointScaler.magnitude(this.dayEndBalances[i]));
+		}
+
+		return maxAbs;
+	} // end getMaxAbsBalance()
+
+	/**
+	 * Check the balance as of a date fits with a different number of decimals.
+	 *
+	 * @param date The date of interest
+	 * @param rightMovePlaces Number of places to move the decimal point right
+	 * @return A FixedPointScaler result code
+	 */
+	public int checkBalance(int date, int rightMovePlaces) {
+
+		return FixedPointScaler.checkRescale(getBalanceAsOfDate(date), rightMovePlaces);
+	} // end checkBalance(int, int)
+
+} // end class RunningBalanceValidator
@@ -0,0 +1,150 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.moneydance.modules.features.moredecimal;
+
+import static com.infinitekind.moneydance.model.Account.AccountType.INVESTMENT;
+import static com.infinitekind.moneydance.model.Account.AccountType.SECURITY;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.infinitekind.moneydance.model.Account;
+import com.infinitekind.moneydance.model.AccountBook;
+import com.infinitekind.moneydance.model.AccountListener;
+import com.infinitekind.moneydance.model.CurrencyType;
+import com.leastlogic.moneydance.util.MdUtil;
+
+/**
+ * Index from each security to the security accounts holding it in investment
+ * accounts, keyed by the account's currency rather than its name. Built once
+ * per account book and kept current by listening for account changes.
+ */
+public class SecurityAccountIndex implements AccountListener {
+	private AccountBook book;
+	private Map<CurrencyType, List<Account>> accountsBySecurity = null;
+	private Map<Account, CurrencyType> securityByAccount = null;
+
+	/**
+	 * Sole constructor.
+	 *
+	 * @param accountBook Moneydance account book
+	 */
+	public SecurityAccountIndex(AccountBook accountBook) {
+		this.book = accountBook;
+		accountBook.addAccountListener(this);
+
+	} // end (AccountBook) constructor
+
+	/**
+	 * @return The account book this index covers
+	 */
+	public AccountBook getBook() {
+
+		return this.book;
+	} // end getBook()
+
+	/**
+	 * @param security
+	 * @return The security accounts in investment accounts holding the security
+	 */
+	public synchronized List<Account> getAccounts(CurrencyType security) {
+		if (this.accountsBySecurity == null) {
+			buildIndex();
+		}
+		List<Account> accounts = this.accountsBySecurity.get(security);
+
+		return accounts == null ? new ArrayList<>() : new ArrayList<>(accounts);
+	} // end getAccounts(CurrencyType)
+
+	/**
+	 * Walk the account tree once to index every security account.
+	 */
+	private void buildIndex() {
+		this.accountsBySecurity = new LinkedHashMap<>();
+		this.securityByAccount = new HashMap<>();
+
+		for (Account investAcnt : MdUtil.getAccounts(this.book, INVESTMENT)) {
+			for (Account subAcnt : investAcnt.getSubAccounts()) {
+				addAccount(subAcnt);
+			} // end for
+		} // end for
+
+	} // end buildIndex()
+
+	/**
+	 * @param account Account to index when it is a security in an investment account
+	 */
+	private void addAccount(Account account) {
+		Account parent = account.getParentAccount();
+
+		if (account.getAccountType() == SECURITY && parent != null
+				&& parent.getAccountType() == INVESTMENT) {
+			CurrencyType security = account.getCurrencyType();
+			this.accountsBySecurity.computeIfAbsent(security, k -> new ArrayList<>()).add(account);
+			this.securityByAccount.put(account, security);
+		}
+
+	} // end addAccount(Account)
+
+	/**
+	 * @param account Account to drop from the index
+	 */
+	private void removeAccount(Account account) {
+		CurrencyType security = this.securityByAccount.remove(account);
+
+		if (security != null) {
+			List<Account> accounts = this.accountsBySecurity.get(security);
+			accounts.remove(account);
+
+			if (accounts.isEmpty()) {
+				this.accountsBySecurity.remove(security);
+			}
+		}
+
+	} // end removeAccount(Account)
+
+	public synchronized void accountAdded(Account parentAccount, Account newAccount) {
+		if (this.accountsBySecurity != null) {
+			addAccount(newAccount);
+		}
+
+	} // end accountAdded(Account, Account)
+
+	public void accountBalanceChanged(Account account) {
+		// balances don't affect the index
+
+	} // end accountBalanceChanged(Account)
+
+	public synchronized void accountDeleted(Account parentAccount, Account deletedAccount) {
+		if (this.accountsBySecurity != null) {
+			removeAccount(deletedAccount);
+		}
+
+	} // end accountDeleted(Account, Account)
+
+	public synchronized void accountModified(Account account) {
+		if (this.accountsBySecurity != null
+				&& this.securityByAccount.get(account) != account.getCurrencyType()) {
+			// the account's security changed; move it in the index
+			removeAccount(account);
+			addAccount(account);
+		}
+
+	} // end accountModified(Account)
+
+	/**
+	 * Stop listening for account changes.
+	 *
+	 * @return null
+	 */
+	public SecurityAccountIndex releaseResources() {
+		this.book.removeAccountListener(this);
+
+		return null;
+	} // end releaseResources()
+
+} // end class SecurityAccountIndex
@@ -0,0 +1,341 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.moneydance.modules.features.moredecimal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.AbstractListModel;
+import javax.swing.ComboBoxModel;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+
+import com.infinitekind.moneydance.model.CurrencyListener;
+import com.infinitekind.moneydance.model.CurrencyTable;
+import com.infinitekind.moneydance.model.CurrencyType;
+import com.infinitekind.moneydance.model.CurrencyUtil;
+
+/**
+ * Combo box model of the securities shown in Moneydance. The model starts
+ * empty and is filled in the background, then kept current by applying just
+ * the securities added, removed, renamed or hidden since, instead of
+ * rebuilding the list. Moneydance's currency listener doesn't say which
+ * currency changed, so a background pass compares each currency with what
+ * the model last applied; a price update changes nothing it compares, so it
+ * costs that pass alone. Methods other than currencyTableModified must be
+ * called on the event dispatch thread.
+ */
+class SecurityDataModel extends AbstractListModel<CurrencyType>
+		implements ComboBoxModel<CurrencyType>, CurrencyListener {
+	private CurrencyTable allCurrencies;
+	private ArrayList<CurrencyType> securities = new ArrayList<>();
+	private SecuritySearchIndex searchIndex = new SecuritySearchIndex();
+	// what was last applied of each shown security; used by one refresh at a time
+	private HashMap<CurrencyType, ShownSecurity> applied = new HashMap<>();
+	private int numRefreshes = 0;
+	private Object selectedItem = null;
+	private boolean refreshing = false;
+	private boolean refreshAgain = false;
+	private boolean released = false;
+	private static final long serialVersionUID = 2640349567437611960L;
+
+	/**
+	 * Sole constructor. Starts filling the model in the background.
+	 *
+	 * @param allCurrencies
+	 */
+	public SecurityDataModel(CurrencyTable allCurrencies) {
+		this.allCurrencies = allCurrencies;
+		allCurrencies.addCurrencyListener(this);
+		refresh();
+
+	} // end (CurrencyTable) constructor
+
+	public int getSize() {
+
+		return this.securities.size();
+	} // end getSize()
+
+	public CurrencyType getElementAt(int index) {
+
+		return this.securities.get(index);
+	} // end getElementAt(int)
+
+	public void setSelectedItem(Object item) {
+		if (!equalsSelected(item)) {
+			this.selectedItem = item;
+			fireContentsChanged(this, -1, -1);
+		}
+
+	} // end setSelectedItem(Object)
+
+	private boolean equalsSelected(Object item) {
+
+		if (this.selectedItem == null) {
+			return this.selectedItem == item;
+		} else {
+			return this.selectedItem.equals(item);
+		}
+	} // end equalsSelected(Object)
+
+	public Object getSelectedItem() {
+
+		return this.selectedItem;
+	} // end getSelectedItem()
+
+	/**
+	 * @param typed Text typed so far
+	 * @return Index of the best matching security, or -1 when none match
+	 */
+	public int indexOfMatch(String typed) {
+		CurrencyType match = this.searchIndex.find(typed);
+
+		return match == null ? -1 : this.securities.indexOf(match);
+	} // end indexOfMatch(String)
+
+	/**
+	 * Called by Moneydance, possibly off the event dispatch thread, after
+	 * currencies are added, changed or removed.
+	 *
+	 * @param table
+	 */
+	public void currencyTableModified(CurrencyTable table) {
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				refresh();
+
+			} // end run()
+		});
+
+	} // end currencyTableModified(CurrencyTable)
+
+	/**
+	 * Find the securities shown that changed in the background, then apply them
+	 * to this model. Requests made while one is running are combined into one
+	 * more.
+	 */
+	private void refresh() {
+		if (this.released)
+			return;
+
+		if (this.refreshing) {
+			this.refreshAgain = true;
+
+			return;
+		}
+		this.refreshing = true;
+		LoadSecuritiesEvent loadEvent = new LoadSecuritiesEvent();
+		loadEvent.begin();
+
+		new SwingWorker<TableChanges, Void>() {
+			protected TableChanges doInBackground() {
+
+				return findChanges();
+			} // end doInBackground()
+
+			protected void done() {
+				SecurityDataModel model = SecurityDataModel.this;
+				model.refreshing = false;
+				try {
+					if (!model.released) {
+						boolean firstLoad = model.securities.isEmpty();
+						model.apply(get());
+
+						loadEvent.end();
+
+						if (firstLoad && loadEvent.shouldCommit()) {
+							loadEvent.securities = model.getSize();
+							loadEvent.commit();
+						}
+					}
+				} catch (ExecutionException e) {
+					e.getCause().printStackTrace(System.err);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+
+				if (model.refreshAgain) {
+					model.refreshAgain = false;
+					model.refresh();
+				}
+
+			} // end done()
+		}.execute();
+
+	} // end refresh()
+
+	/**
+	 * Compare each currency with what was last applied of it. Called off the
+	 * event dispatch thread, by one refresh at a time.
+	 *
+	 * @return The securities to add, move and remove
+	 */
+	private TableChanges findChanges() {
+		TableChanges changes = new TableChanges();
+		int refresh = ++this.numRefreshes;
+
+		for (CurrencyType currency : this.allCurrencies) {
+			ShownSecurity last = this.applied.get(currency);
+
+			if (currency.getCurrencyType() == CurrencyType.Type.SECURITY
+					&& !currency.getBooleanParameter("hide_in_ui", false)) {
+				if (last == null) {
+					this.applied.put(currency, new ShownSecurity(currency, refresh));
+					changes.added.add(currency);
+				} else {
+					if (!last.matches(currency)) {
+						// renamed, so its place in the list and its search keys changed
+						last.update(currency);
+						changes.moved.add(currency);
+					}
+					last.refresh = refresh;
+				}
+			}
+		} // end for
+		Iterator<Map.Entry<CurrencyType, ShownSecurity>> entries =
+			this.applied.entrySet().iterator();
+
+		while (entries.hasNext()) {
+			Map.Entry<CurrencyType, ShownSecurity> entry = entries.next();
+
+			if (entry.getValue().refresh != refresh) {
+				// deleted, hidden or no longer a security
+				changes.removed.add(entry.getKey());
+				entries.remove();
+			}
+		} // end while
+
+		return changes;
+	} // end findChanges()
+
+	/**
+	 * Bring this model in line with the securities now shown, firing events for
+	 * just the entries that changed.
+	 *
+	 * @param changes The securities to add, move and remove
+	 */
+	private void apply(TableChanges changes) {
+		for (CurrencyType security : changes.removed) {
+			removeSecurity(security);
+			this.searchIndex.remove(security);
+
+			if (security == this.selectedItem) {
+				setSelectedItem(null);
+			}
+		} // end for
+
+		for (CurrencyType security : changes.moved) {
+			removeSecurity(security);
+		}
+
+		if (this.securities.isEmpty() && changes.moved.isEmpty()) {
+			// first load, or everything replaced
+			changes.added.sort(CurrencyUtil.CURRENCY_TYPENAME_COMPARATOR);
+			this.securities.addAll(changes.added);
+
+			if (!changes.added.isEmpty()) {
+				fireIntervalAdded(this, 0, changes.added.size() - 1);
+			}
+		} else {
+			changes.added.addAll(changes.moved);
+
+			for (CurrencyType security : changes.added) {
+				int index = Collections.binarySearch(this.securities, security,
+					CurrencyUtil.CURRENCY_TYPENAME_COMPARATOR);
+
+				if (index < 0) {
+					index = -index - 1;
+				}
+				this.securities.add(index, security);
+				fireIntervalAdded(this, index, index);
+			} // end for
+		}
+
+		for (CurrencyType security : changes.added) {
+			// indexes new securities and updates the keys of renamed ones
+			this.searchIndex.add(security);
+		} // end for
+
+	} // end apply(TableChanges)
+
+	/**
+	 * @param security A security to take out of the list, when in it
+	 */
+	private void removeSecurity(CurrencyType security) {
+		int index = this.securities.indexOf(security);
+
+		if (index >= 0) {
+			this.securities.remove(index);
+			fireIntervalRemoved(this, index, index);
+		}
+
+	} // end removeSecurity(CurrencyType)
+
+	/**
+	 * Stop listening for currency changes.
+	 */
+	public void releaseResources() {
+		this.released = true;
+		this.allCurrencies.removeCurrencyListener(this);
+
+	} // end releaseResources()
+
+	/**
+	 * Class to hold what was last applied of one shown security.
+	 */
+	private static class ShownSecurity {
+		private String name;
+		private String tickerSymbol;
+		private int refresh;
+
+		/**
+		 * Sole constructor.
+		 *
+		 * @param security
+		 * @param refresh The refresh that found it
+		 */
+		ShownSecurity(CurrencyType security, int refresh) {
+			update(security);
+			this.refresh = refresh;
+
+		} // end (CurrencyType, int) constructor
+
+		/**
+		 * @param security The security as it is now
+		 */
+		void update(CurrencyType security) {
+			this.name = security.getName();
+			this.tickerSymbol = security.getTickerSymbol();
+
+		} // end update(CurrencyType)
+
+		/**
+		 * @param security
+		 * @return True when the security still sorts and is found the same way
+		 */
+		boolean matches(CurrencyType security) {
+
+			return Objects.equals(this.name, security.getName())
+				&& Objects.equals(this.tickerSymbol, security.getTickerSymbol());
+		} // end matches(CurrencyType)
+
+	} // end class ShownSecurity
+
+	/**
+	 * Class to hold the securities one refresh found changed.
+	 */
+	private static class TableChanges {
+		private List<CurrencyType> added = new ArrayList<>();
+		private List<CurrencyType> moved = new ArrayList<>();
+		private List<CurrencyType> removed = new ArrayList<>();
+
+	} // end class TableChanges
+
+} // end class SecurityDataModel
@@ -0,0 +1,132 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.moneydance.modules.features.moredecimal;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.infinitekind.moneydance.model.CurrencyType;
+
+/**
+ * Index of security names and ticker symbols for type-ahead search. Prefix
+ * searches are answered from sorted maps; substring searches scan the names.
+ * Securities are added and removed one at a time so the index never needs to
+ * be rebuilt.
+ */
+class SecuritySearchIndex {
+	private TreeMap<String, CurrencyType> names = new TreeMap<>();
+	private TreeMap<String, CurrencyType> tickers = new TreeMap<>();
+	private Map<CurrencyType, String[]> keysBySecurity = new HashMap<>();
+	private long nextId = 0;
+
+	// separates the searchable text from a suffix that keeps each key unique
+	private static final char KEY_SEPARATOR = '\u0000';
+
+	/**
+	 * Add a security, or update its keys if it is already indexed.
+	 *
+	 * @param security
+	 */
+	public void add(CurrencyType security) {
+		String[] keys = this.keysBySecurity.get(security);
+		String name = normalize(security.getName());
+		String ticker = normalize(security.getTickerSymbol());
+
+		if (keys != null) {
+			if (keys[0].startsWith(name + KEY_SEPARATOR)
+					&& (keys[1] == null ? ticker.isEmpty() : keys[1].startsWith(ticker + KEY_SEPARATOR)))
+				return; // unchanged
+
+			remove(security);
+		}
+		String unique = KEY_SEPARATOR + Long.toString(this.nextId++, Character.MAX_RADIX);
+		keys = new String[] { name + unique, ticker.isEmpty() ? null : ticker + unique };
+		this.names.put(keys[0], security);
+
+		if (keys[1] != null) {
+			this.tickers.put(keys[1], security);
+		}
+		this.keysBySecurity.put(security, keys);
+
+	} // end add(CurrencyType)
+
+	/**
+	 * @param security The security to stop finding
+	 */
+	public void remove(CurrencyType security) {
+		String[] keys = this.keysBySecurity.remove(security);
+
+		if (keys != null) {
+			this.names.remove(keys[0]);
+
+			if (keys[1] != null) {
+				this.tickers.remove(keys[1]);
+			}
+		}
+
+	} // end remove(CurrencyType)
+
+	/**
+	 * Find the best match for text typed so far: the first name starting with
+	 * it, else the first ticker symbol starting with it, else the first name
+	 * containing it.
+	 *
+	 * @param typed
+	 * @return The matching security, or null when none match
+	 */
+	public CurrencyType find(String typed) {
+		String text = normalize(typed);
+
+		if (text.isEmpty())
+			return null;
+		CurrencyType match = findPrefix(this.names, text);
+
+		if (match == null) {
+			match = findPrefix(this.tickers, text);
+		}
+
+		if (match == null) {
+			for (Map.Entry<String, CurrencyType> entry : this.names.entrySet()) {
+				String key = entry.getKey();
+				int found = key.indexOf(text);
+
+				if (found > 0 && found + text.length() <= key.lastIndexOf(KEY_SEPARATOR))
+					return entry.getValue();
+			} // end for
+		}
+
+		return match;
+	} // end find(String)
+
+	/**
+	 * @return Number of securities indexed
+	 */
+	public int size() {
+
+		return this.keysBySecurity.size();
+	} // end size()
+
+	/**
+	 * @param keys
+	 * @param prefix
+	 * @return The security with the first key starting with prefix, or null
+	 */
+	private static CurrencyType findPrefix(TreeMap<String, CurrencyType> keys, String prefix) {
+		Map.Entry<String, CurrencyType> entry = keys.ceilingEntry(prefix);
+
+		return entry != null && entry.getKey().startsWith(prefix) ? entry.getValue() : null;
+	} // end findPrefix(TreeMap<String, CurrencyType>, String)
+
+	/**
+	 * @param text
+	 * @return Lower case text without surrounding white space; empty for null
+	 */
+	private static String normalize(String text) {
+
+		return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+	} // end normalize(String)
+
+} // end class SecuritySearchIndex
@@ -0,0 +1,384 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.moneydance.modules.features.moredecimal;
+
+import static com.moneydance.modules.features.moredecimal.FixedPointScaler.RESCALE_OVERFLOW;
+import static com.moneydance.modules.features.moredecimal.FixedPointScaler.RESCALE_ROUNDING;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Columns holding the date and share value of every transaction in one
+ * security account, copied off-heap from primitive arrays so the share and balance
+ * checks of staging run over primitive columns instead of walking transaction
+ * objects. Day-end balances are a prefix sum over the value column, and the
+ * checks scan each column a block at a time with branch-free loops, only
+ * rescanning a block that holds a value that won't fit. These are plain scalar
+ * loops: the Vector API needs the JVM started with --add-modules
+ * jdk.incubator.vector, which an extension loaded into Moneydance can't add,
+ * and the JIT compiler doesn't vectorize reductions like these on its own.
+ * Columns are reused across accounts through a Pool that lasts one staging run.
+ */
+public class SplitColumns {
+	private IntBuffer dates;
+	private LongBuffer values;
+	private LongBuffer dayEndBalances;
+	private boolean[] isSplit = null;
+	private int capacity = 0;
+	private int numTxns = 0;
+
+	// transactions checked per block before looking for the first one that won't fit
+	private static final int BLOCK_SIZE = 1024;
+	private static final int MIN_CAPACITY = 4096;
+
+	/**
+	 * Sole constructor.
+	 */
+	public SplitColumns() {
+		allocate(MIN_CAPACITY);
+
+	} // end constructor
+
+	/**
+	 * @param capacity Number of transactions the columns must hold
+	 */
+	private void allocate(int capacity) {
+		this.dates = ByteBuffer.allocateDirect(capacity * Integer.BYTES)
+			.order(ByteOrder.nativeOrder()).asIntBuffer();
+		this.values = ByteBuffer.allocateDirect(capacity * Long.BYTES)
+			.order(ByteOrder.nativeOrder()).asLongBuffer();
+		this.dayEndBalances = ByteBuffer.allocateDirect(capacity * Long.BYTES)
+			.order(ByteOrder.nativeOrder()).asLongBuffer();
+		this.capacity = capacity;
+
+	} // end allocate(int)
+
+	/**
+	 * @param capacity Number of transactions about to be loaded
+	 */
+	private void ensureCapacity(int capacity) {
+		if (capacity > this.capacity) {
+			allocate(Math.max(capacity, this.capacity * 2));
+		}
+
+	} // end ensureCapacity(int)
+
+	/**
+	 * Copy transactions already held in primitive arrays, all taken as splits.
+	 *
+	 * @param txnDates The date of each transaction
+	 * @param txnValues The share value of each transaction
+	 * @param numTxns The number of transactions in the arrays
+	 */
+	public void load(int[] txnDates, long[] txnValues, int numTxns) {
+		load(txnDates, txnValues, null, numTxns);
+
+	} // end load(int[], long[], int)
+
+	/**
+	 * Copy transactions already held in primitive arrays.
+	 *
+	 * @param txnDates The date of each transaction
+	 * @param txnValues The share value of each transaction
+	 * @param txnIsSplit Whether each transaction is a split, or null when all are
+	 * @param numTxns The number of transactions in the arrays
+	 */
+	public void load(int[] txnDates, long[] txnValues, boolean[] txnIsSplit, int numTxns) {
+		ensureCapacity(numTxns);
+
+		for (int i = 0; i < numTxns; ++i) {
+			this.dates.put(i, txnDates[i]);
+			this.values.put(i, txnValues[i]);
+		} // end for
+		this.isSplit = txnIsSplit;
+		this.numTxns = numTxns;
+
+	} // end load(int[], long[], boolean[], int)
+
+	/**
+	 * Drop the reference to the split flags loaded, keeping the columns for
+	 * reuse.
+	 */
+	public void release() {
+		this.isSplit = null;
+		this.numTxns = 0;
+
+	} // end release()
+
+	/**
+	 * Find the share balance at the end of each transaction's date: a running sum
+	 * in date order, with each date's final sum carried back to the other
+	 * transactions on that date.
+	 *
+	 * @param startBalance The share balance before any transactions
+	 */
+	public void computeBalances(long startBalance) {
+		int[] order = dateOrder();
+		long balance = startBalance;
+
+		for (int i = 0; i < this.numTxns; ++i) {
+			int index = order == null ? i : order[i];
+			balance += this.values.get(index);
+			this.dayEndBalances.put(index, balance);
+		} // end for
+
+		for (int i = this.numTxns - 2; i >= 0; --i) {
+			int index = order == null ? i : order[i];
+			int next = order == null ? i + 1 : order[i + 1];
+
+			if (this.dates.get(index) == this.dates.get(next)) {
+				this.dayEndBalances.put(index, this.dayEndBalances.get(next));
+			}
+		} // end for
+
+	} // end computeBalances(long)
+
+	/**
+	 * @return Transaction indexes in date order, or null when the transactions
+	 *         are already in date order
+	 */
+	private int[] dateOrder() {
+		int i = 1;
+
+		while (i < this.numTxns && this.dates.get(i - 1) <= this.dates.get(i)) {
+			++i;
+		}
+		if (i >= this.numTxns)
+			return null;
+
+		// pack date above index so one primitive sort orders by date, then index
+		long[] packed = new long[this.numTxns];
+
+		for (i = 0; i < this.numTxns; ++i) {
+			packed[i] = ((long) this.dates.get(i) << 32) | i;
+		}
+		Arrays.sort(packed);
+		int[] order = new int[this.numTxns];
+
+		for (i = 0; i < this.numTxns; ++i) {
+			order[i] = (int) packed[i];
+		}
+
+		return order;
+	} // end dateOrder()
+
+	/**
+	 * Find the first split whose shares or day-end balance won't fit with a
+	 * different number of decimal places; the same split checking each split
+	 * in order would find.
+	 *
+	 * @param checkShares true to check each split's shares
+	 * @param checkBalances true to check each split's day-end balance, which
+	 *                      computeBalances must have found
+	 * @param rightMovePlaces Number of places to move the decimal point right
+	 *                        (negative to move left)
+	 * @return Index of the first split that won't fit, or -1 when all fit
+	 */
+	public int findFirstUnfit(boolean checkShares, boolean checkBalances, int rightMovePlaces) {
+		int end = this.numTxns;
+		int unfit = -1;
+
+		if (checkShares) {
+			unfit = findFirstUnfit(this.values, end, rightMovePlaces);
+
+			if (unfit >= 0) {
+				// only earlier balances could matter
+				end = unfit;
+			}
+		}
+
+		if (checkBalances) {
+			int balanceUnfit = findFirstUnfit(this.dayEndBalances, end, rightMovePlaces);
+
+			if (balanceUnfit >= 0) {
+				unfit = balanceUnfit;
+			}
+		}
+
+		return unfit;
+	} // end findFirstUnfit(boolean, boolean, int)
+
+	/**
+	 * @param column Values to check
+	 * @param end Index after the last split to check
+	 * @param rightMovePlaces
+	 * @return Index of the first split whose value won't fit, or -1 when all fit
+	 */
+	private int findFirstUnfit(LongBuffer column, int end, int rightMovePlaces) {
+		int places = Math.abs(rightMovePlaces);
+		boolean inBounds = rightMovePlaces > 0 || places > FixedPointScaler.MAX_PLACES;
+		// only zero can move further than a long has digits
+		long power = places > FixedPointScaler.MAX_PLACES ? 0 : FixedPointScaler.powerOfTen(places);
+		// a product fits in a long exactly when the value is within these bounds
+		long max = power == 0 ? 0 : Long.MAX_VALUE / power;
+		long min = power == 0 ? 0 : Long.MIN_VALUE / power;
+		int start = 0;
+
+		while (start < end) {
+			int index = inBounds ? findFirstOutside(column, start, end, min, max)
+				: findFirstRounding(column, start, end, power);
+
+			if (index < 0 || isSplit(index))
+				return index;
+			start = index + 1;
+		}
+
+		return -1;
+	} // end findFirstUnfit(LongBuffer, int, int)
+
+	/**
+	 * @param column Values to check
+	 * @param start Index of the first value to check
+	 * @param end Index after the last value to check
+	 * @param min The least value that fits
+	 * @param max The greatest value that fits
+	 * @return Index of the first value outside the bounds, or -1 when none are
+	 */
+	private static int findFirstOutside(LongBuffer column, int start, int end, long min,
+			long max) {
+		for (int block = start; block < end; block += BLOCK_SIZE) {
+			int blockEnd = Math.min(block + BLOCK_SIZE, end);
+			boolean unfit = false;
+
+			for (int i = block; i < blockEnd; ++i) {
+				long value = column.get(i);
+				unfit |= value > max | value < min;
+			} // end for
+
+			if (unfit) {
+				for (int i = block; i < blockEnd; ++i) {
+					long value = column.get(i);
+
+					if (value > max || value < min)
+						return i;
+				} // end for
+			}
+		} // end for
+
+		return -1;
+	} // end findFirstOutside(LongBuffer, int, int, long, long)
+
+	/**
+	 * @param column Values to check
+	 * @param start Index of the first value to check
+	 * @param end Index after the last value to check
+	 * @param power Ten raised to the number of places to move the decimal point left
+	 * @return Index of the first value that would need rounding, or -1 when none would
+	 */
+	private static int findFirstRounding(LongBuffer column, int start, int end, long power) {
+		for (int block = start; block < end; block += BLOCK_SIZE) {
+			int blockEnd = Math.min(block + BLOCK_SIZE, end);
+			long remainders = 0;
+
+			for (int i = block; i < blockEnd; ++i) {
+				remainders |= column.get(i) % power;
+			} // end for
+
+			if (remainders != 0) {
+				for (int i = block; i < blockEnd; ++i) {
+					if (column.get(i) % power != 0)
+						return i;
+				} // end for
+			}
+		} // end for
+
+		return -1;
+	} // end findFirstRounding(LongBuffer, int, int, long)
+
+	/**
+	 * @param rightMovePlaces Number of places to move the decimal point right
+	 *                        (negative to move left)
+	 * @return The FixedPointScaler result code for a value that won't fit
+	 */
+	public static int unfitResult(int rightMovePlaces) {
+
+		return rightMovePlaces > 0 ? RESCALE_OVERFLOW : RESCALE_ROUNDING;
+	} // end unfitResult(int)
+
+	/**
+	 * @param index
+	 * @return True when the transaction at the index is a split
+	 */
+	private boolean isSplit(int index) {
+
+		return this.isSplit == null || this.isSplit[index];
+	} // end isSplit(int)
+
+	/**
+	 * Class to hold the columns of one staging run. Each verifying thread
+	 * borrows a set of columns for an account and gives it back after, so a run
+	 * needs only as many sets as it has threads; clearing the pool when the run
+	 * ends lets the off-heap buffers, sized to the largest account, be freed.
+	 */
+	public static class Pool {
+		private ConcurrentLinkedQueue<SplitColumns> free = new ConcurrentLinkedQueue<>();
+
+		/**
+		 * @return Columns no other thread is using
+		 */
+		public SplitColumns borrow() {
+			SplitColumns columns = this.free.poll();
+
+			return columns == null ? new SplitColumns() : columns;
+		} // end borrow()
+
+		/**
+		 * @param columns Columns borrowed from this pool and now released
+		 */
+		public void giveBack(SplitColumns columns) {
+			this.free.add(columns);
+
+		} // end giveBack(SplitColumns)
+
+		/**
+		 * Drop all the columns given back, once no more are needed.
+		 */
+		public void clear() {
+			this.free.clear();
+
+		} // end clear()
+
+	} // end class Pool
+
+	/**
+	 * @return Number of transactions loaded
+	 */
+	public int size() {
+
+		return this.numTxns;
+	} // end size()
+
+	/**
+	 * @param index
+	 * @return The date of the transaction at the index
+	 */
+	public int getDate(int index) {
+
+		return this.dates.get(index);
+	} // end getDate(int)
+
+	/**
+	 * @param index
+	 * @return The share value of the transaction at the index
+	 */
+	public long getValue(int index) {
+
+		return this.values.get(index);
+	} // end getValue(int)
+
+	/**
+	 * @param index
+	 * @return The share balance at the end of the transaction's date
+	 */
+	public long getDayEndBalance(int index) {
+
+		return this.dayEndBalances.get(index);
+	} // end getDayEndBalance(int)
+
+} // end class SplitColumns
@@ -0,0 +1,49 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.moneydance.modules.features.moredecimal;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event for verifying and staging one security account.
+ */
+@Name("com.moneydance.moredecimal.StageAccount")
+@Label("More Decimal Stage Account")
+@Category("More Decimal")
+@Description("Verifying and staging the transactions of one security account")
+class StageAccountEvent extends jdk.jfr.Event {
+	@Label("Account")
+	String account;
+
+	@Label("Security")
+	String security;
+
+	@Label("Transactions")
+	int transactions;
+
+	@Label("Good")
+	boolean good;
+
+	@Label("Allocated")
+	@DataAmount
+	long allocatedBytes;
+
+	@Label("Load Transactions")
+	@Timespan
+	long loadTxns;
+
+	@Label("Build Balances")
+	@Timespan
+	long buildBalances;
+
+	@Label("Verify and Stage")
+	@Timespan
+	long verifyAndStage;
+
+} // end class StageAccountEvent
@@ -0,0 +1,140 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.moneydance.modules.features.moredecimal;
+
+import com.infinitekind.moneydance.model.AbstractTxn;
+import com.infinitekind.moneydance.model.Account;
+import com.infinitekind.moneydance.model.AccountBook;
+import com.infinitekind.moneydance.model.SplitTxn;
+import com.infinitekind.moneydance.model.TransactionSet;
+
+/**
+ * Class to hold what staging keeps of a verified security account besides its
+ * changes: just enough to find it again and tell whether it changed since.
+ * The fingerprint is a sum over the account's splits, so it doesn't depend on
+ * the order they are visited, and it only uses what a data file keeps from one
+ * session to the next, so an exported change set can be checked against it.
+ */
+class StagedAccount {
+	private Account securityAccount;
+	private RescaleTarget target;
+	private long fingerprint;
+	private int txnCount;
+
+	private static final long FINGERPRINT_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+	/**
+	 * Sole constructor.
+	 *
+	 * @param securityAccount The verified security account
+	 * @param target The security's change
+	 * @param fingerprint The fingerprint of the account's splits when verified
+	 * @param txnCount The number of splits in the account when verified
+	 */
+	StagedAccount(Account securityAccount, RescaleTarget target, long fingerprint,
+			int txnCount) {
+		this.securityAccount = securityAccount;
+		this.target = target;
+		this.fingerprint = fingerprint;
+		this.txnCount = txnCount;
+
+	} // end (Account, RescaleTarget, long, int) constructor
+
+	/**
+	 * @param txnSet The transactions in the account book
+	 * @return True when the account holds the same splits it did when verified
+	 */
+	public boolean isUnchanged(TransactionSet txnSet) {
+		StagedAccount current = current(txnSet);
+
+		return current.fingerprint == this.fingerprint && current.txnCount == this.txnCount;
+	} // end isUnchanged(TransactionSet)
+
+	/**
+	 * @param txnSet The transactions in the account book
+	 * @return This account as it is now, such as after a commit changed its splits
+	 */
+	public StagedAccount current(TransactionSet txnSet) {
+		long current = 0;
+		int count = 0;
+
+		for (AbstractTxn txn : txnSet.getTxnsForAccount(this.securityAccount)) {
+			if (txn instanceof SplitTxn) {
+				current = addToFingerprint(current, (SplitTxn) txn);
+				++count;
+			}
+		} // end for
+
+		return new StagedAccount(this.securityAccount, this.target, current, count);
+	} // end current(TransactionSet)
+
+	/**
+	 * @param copy Another copy of the account book, such as one loaded again
+	 * @return True when the copy of this account holds the same splits
+	 */
+	public boolean isSameIn(AccountBook copy) {
+		Account copyAccount = copy.getAccountByUUID(this.securityAccount.getUUID());
+
+		return copyAccount != null
+			&& new StagedAccount(copyAccount, this.target, this.fingerprint, this.txnCount)
+				.isUnchanged(copy.getTransactionSet());
+	} // end isSameIn(AccountBook)
+
+	/**
+	 * @param fingerprint The fingerprint of the other splits in an account
+	 * @param sTxn Another split in the account
+	 * @return The fingerprint including the split's parent, date and shares
+	 */
+	public static long addToFingerprint(long fingerprint, SplitTxn sTxn) {
+
+		return addToFingerprint(fingerprint, parentKey(sTxn), sTxn.getDateInt(),
+			sTxn.getValue());
+	} // end addToFingerprint(long, SplitTxn)
+
+	/**
+	 * @param fingerprint The fingerprint of the other splits in an account
+	 * @param parentKey The key of the parent transaction of another split in the account
+	 * @param txnDate That split's date
+	 * @param shares That split's share value
+	 * @return The fingerprint including the split
+	 */
+	public static long addToFingerprint(long fingerprint, int parentKey, int txnDate,
+			long shares) {
+		long hash = parentKey * FINGERPRINT_MULTIPLIER;
+		hash = (hash + txnDate) * FINGERPRINT_MULTIPLIER;
+		hash = (hash + shares) * FINGERPRINT_MULTIPLIER;
+
+		return fingerprint + (hash ^ (hash >>> 29));
+	} // end addToFingerprint(long, int, int, long)
+
+	/**
+	 * @param sTxn
+	 * @return What the fingerprint keeps of the split's parent transaction
+	 */
+	public static int parentKey(SplitTxn sTxn) {
+
+		return sTxn.getParentTxn().getUUID().hashCode();
+	} // end parentKey(SplitTxn)
+
+	public Account getSecurityAccount() {
+
+		return this.securityAccount;
+	} // end getSecurityAccount()
+
+	public RescaleTarget getTarget() {
+
+		return this.target;
+	} // end getTarget()
+
+	public long getFingerprint() {
+
+		return this.fingerprint;
+	} // end getFingerprint()
+
+	public int getTxnCount() {
+
+		return this.txnCount;
+	} // end getTxnCount()
+
+} // end class StagedAccount
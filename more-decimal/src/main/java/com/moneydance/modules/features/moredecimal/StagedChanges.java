@@ -0,0 +1,268 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.moneydance.modules.features.moredecimal;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+import com.infinitekind.moneydance.model.Account;
+import com.infinitekind.moneydance.model.SplitTxn;
+
+/**
+ * Compact store of staged transaction changes, kept as parallel arrays of
+ * split references and new share values, plus the offset range of each
+ * account's changes.
+ */
+public class StagedChanges {
+	private SplitTxn[] txns;
+	private long[] newShares;
+	private int size = 0;
+	private int[] acntEnds;
+	private int numAcnts = 0;
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * Sole constructor.
+	 */
+	public StagedChanges() {
+		clear();
+
+	} // end constructor
+
+	/**
+	 * Stage a change to the current account.
+	 *
+	 * @param txn The split to change
+	 * @param shares The new share value
+	 */
+	public void add(SplitTxn txn, long shares) {
+		ensureCapacity(this.size + 1);
+		this.txns[this.size] = txn;
+		this.newShares[this.size++] = shares;
+
+	} // end add(SplitTxn, long)
+
+	/**
+	 * Append all the changes in another store as one account.
+	 *
+	 * @param acntChanges The changes for a single account
+	 */
+	public void addAccount(StagedChanges acntChanges) {
+		ensureCapacity(this.size + acntChanges.size);
+		System.arraycopy(acntChanges.txns, 0, this.txns, this.size, acntChanges.size);
+		System.arraycopy(acntChanges.newShares, 0, this.newShares, this.size, acntChanges.size);
+		this.size += acntChanges.size;
+		endAccount();
+
+	} // end addAccount(StagedChanges)
+
+	/**
+	 * Mark the end of the current account's changes.
+	 */
+	public void endAccount() {
+		if (this.numAcnts == this.acntEnds.length) {
+			this.acntEnds = Arrays.copyOf(this.acntEnds, this.numAcnts * 2);
+		}
+		this.acntEnds[this.numAcnts++] = this.size;
+
+	} // end endAccount()
+
+	/**
+	 * @param minCapacity The number of changes we need room for
+	 */
+	private void ensureCapacity(int minCapacity) {
+		if (minCapacity > this.txns.length) {
+			int newCapacity = Math.max(minCapacity, this.txns.length + (this.txns.length >> 1));
+			this.txns = Arrays.copyOf(this.txns, newCapacity);
+			this.newShares = Arrays.copyOf(this.newShares, newCapacity);
+		}
+
+	} // end ensureCapacity(int)
+
+	/**
+	 * @return The number of staged changes
+	 */
+	public int size() {
+
+		return this.size;
+	} // end size()
+
+	/**
+	 * @return True when there are no staged changes
+	 */
+	public boolean isEmpty() {
+
+		return this.size == 0;
+	} // end isEmpty()
+
+	/**
+	 * @param index Index of a staged change
+	 * @return The split to change
+	 */
+	public SplitTxn getTxn(int index) {
+
+		return this.txns[index];
+	} // end getTxn(int)
+
+	/**
+	 * @param index Index of a staged change
+	 * @return The new share value
+	 */
+	public long getNewShares(int index) {
+
+		return this.newShares[index];
+	} // end getNewShares(int)
+
+	/**
+	 * @return The number of accounts with staged changes
+	 */
+	public int getAccountCount() {
+
+		return this.numAcnts;
+	} // end getAccountCount()
+
+	/**
+	 * @param acntIndex Index of an account
+	 * @return Index of the account's first staged change
+	 */
+	public int getAccountStart(int acntIndex) {
+
+		return acntIndex == 0 ? 0 : this.acntEnds[acntIndex - 1];
+	} // end getAccountStart(int)
+
+	/**
+	 * @param acntIndex Index of an account
+	 * @return Index just past the account's last staged change
+	 */
+	public int getAccountEnd(int acntIndex) {
+
+		return this.acntEnds[acntIndex];
+	} // end getAccountEnd(int)
+
+	/**
+	 * @param index Index of a staged change
+	 * @return Index of the account the change belongs to
+	 */
+	public int getAccountOf(int index) {
+		int low = 0;
+		int high = this.numAcnts - 1;
+
+		// find the first account ending after the change
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+
+			if (this.acntEnds[mid] > index) {
+				high = mid;
+			} else {
+				low = mid + 1;
+			}
+		}
+
+		return low;
+	} // end getAccountOf(int)
+
+	/**
+	 * Unlike the account ranges, this still applies after regrouping.
+	 *
+	 * @param start Index of the first staged change to include
+	 * @return The distinct accounts of the staged changes from start on, in the
+	 *         order first seen
+	 */
+	public Set<Account> getAccounts(int start) {
+
+		return distinctKeys(start, i -> this.txns[i].getAccount());
+	} // end getAccounts(int)
+
+	/**
+	 * @param start Index of the first staged change to include
+	 * @param keyOf Provides the key for the staged change at an index
+	 * @return The distinct keys of the staged changes from start on, in the order
+	 *         first seen
+	 */
+	<K> Set<K> distinctKeys(int start, IntFunction<K> keyOf) {
+		Set<K> keys = new LinkedHashSet<>();
+		K prevKey = null;
+
+		for (int i = start; i < this.size; ++i) {
+			K key = keyOf.apply(i);
+
+			// changes for the same key are usually adjacent
+			if (key != prevKey) {
+				keys.add(key);
+				prevKey = key;
+			}
+		} // end for
+
+		return keys;
+	} // end distinctKeys(int, IntFunction<K>)
+
+	/**
+	 * Reorder the staged changes so splits sharing a parent transaction are
+	 * adjacent, keeping parents in the order they were first staged. Account
+	 * ranges no longer apply afterward, so they are discarded.
+	 */
+	public void groupByParent() {
+		groupBy(i -> this.txns[i].getParentTxn());
+
+	} // end groupByParent()
+
+	/**
+	 * Reorder the staged changes so changes with equal keys are adjacent, keeping
+	 * keys in the order they first appear. Account ranges no longer apply
+	 * afterward, so they are discarded.
+	 *
+	 * @param keyOf Provides the key for the staged change at an index
+	 */
+	void groupBy(IntFunction<Object> keyOf) {
+		Map<Object, Integer> groupIds = new HashMap<>();
+		int[] groupOf = new int[this.size];
+
+		for (int i = 0; i < this.size; ++i) {
+			Integer groupId = groupIds.putIfAbsent(keyOf.apply(i), groupIds.size());
+			groupOf[i] = groupId == null ? groupIds.size() - 1 : groupId;
+		} // end for
+
+		if (groupIds.size() < this.size) {
+			// stable counting sort by group
+			int[] groupStarts = new int[groupIds.size() + 1];
+
+			for (int i = 0; i < this.size; ++i) {
+				++groupStarts[groupOf[i] + 1];
+			}
+			for (int g = 1; g < groupStarts.length; ++g) {
+				groupStarts[g] += groupStarts[g - 1];
+			}
+			SplitTxn[] sortedTxns = new SplitTxn[this.txns.length];
+			long[] sortedShares = new long[this.newShares.length];
+
+			for (int i = 0; i < this.size; ++i) {
+				int dest = groupStarts[groupOf[i]]++;
+				sortedTxns[dest] = this.txns[i];
+				sortedShares[dest] = this.newShares[i];
+			} // end for
+			this.txns = sortedTxns;
+			this.newShares = sortedShares;
+		}
+		this.numAcnts = 0;
+
+	} // end groupBy(IntFunction<Object>)
+
+	/**
+	 * Discard all staged changes and release the space they used.
+	 */
+	public void clear() {
+		this.txns = new SplitTxn[INITIAL_CAPACITY];
+		this.newShares = new long[INITIAL_CAPACITY];
+		this.acntEnds = new int[INITIAL_CAPACITY];
+		this.size = 0;
+		this.numAcnts = 0;
+
+	} // end clear()
+
+} // end class StagedChanges
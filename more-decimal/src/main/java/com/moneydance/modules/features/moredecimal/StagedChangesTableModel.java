@@ -0,0 +1,458 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.moneydance.modules.features.moredecimal;
+
+import static com.moneydance.modules.features.moredecimal.MoreDecimalInterface.baseMessageBundleName;
+import static java.time.format.FormatStyle.MEDIUM;
+
+import java.math.BigDecimal;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.SwingWorker;
+import javax.swing.table.AbstractTableModel;
+
+import com.infinitekind.moneydance.model.Account;
+import com.infinitekind.moneydance.model.CurrencyType;
+import com.infinitekind.moneydance.model.SplitTxn;
+import com.leastlogic.moneydance.util.MdUtil;
+
+/**
+ * Table model of staged changes, one row per split. Cells are read from the
+ * staged changes only when the table asks for a row in view, so the model
+ * holds nothing per row beyond the staged changes themselves. Sorting and
+ * filtering build an array of staged change indexes in the background; with
+ * neither in effect, rows map straight to staged changes. Methods other than
+ * the background work must be called on the event dispatch thread.
+ */
+class StagedChangesTableModel extends AbstractTableModel {
+	private StagedChanges changes = null;
+	private int[] viewIndex = null;
+	private int viewSize = 0;
+	private String[] acntNames = new String[0];
+	private int[] acntRanks = new int[0];
+	private int[] oldDecimals = new int[0];
+	private int[] newDecimals = new int[0];
+	private int sortColumn = -1;
+	private boolean ascending = true;
+	private String filter = "";
+	private int viewRequest = 0;
+	private boolean rebuilding = false;
+	private boolean rebuildAgain = false;
+
+	static final int ACCOUNT = 0;
+	static final int DATE = 1;
+	static final int DESCRIPTION = 2;
+	static final int OLD_SHARES = 3;
+	static final int NEW_SHARES = 4;
+
+	private static final String[] COLUMN_KEYS = { "account", "date", "description", "oldShares",
+		"newShares" };
+	private static final Class<?>[] COLUMN_CLASSES = { String.class, String.class, String.class,
+		BigDecimal.class, BigDecimal.class };
+	private static final ResourceBundle msgBundle = ResourceBundle.getBundle(baseMessageBundleName);
+	private static final DateTimeFormatter dateFmt = DateTimeFormatter.ofLocalizedDate(MEDIUM);
+	private static final long serialVersionUID = 7310946625318084012L;
+
+	/**
+	 * Comparison of two staged changes by their indexes.
+	 */
+	private interface IndexComparator {
+		int compare(int index1, int index2);
+	} // end interface IndexComparator
+
+	/**
+	 * Show a new set of staged changes, keeping the sort and filter.
+	 *
+	 * @param changes The staged changes, in account order, or null for none
+	 * @param targets The securities changing decimal places
+	 */
+	public void setChanges(StagedChanges changes, List<RescaleTarget> targets) {
+		++this.viewRequest;
+		this.changes = changes;
+		this.viewIndex = null;
+		int numAcnts = changes == null ? 0 : changes.getAccountCount();
+		this.acntNames = new String[numAcnts];
+		this.oldDecimals = new int[numAcnts];
+		this.newDecimals = new int[numAcnts];
+
+		for (int a = 0; a < numAcnts; ++a) {
+			int start = changes.getAccountStart(a);
+
+			if (start < changes.getAccountEnd(a)) {
+				Account account = changes.getTxn(start).getAccount();
+				CurrencyType security = account.getCurrencyType();
+				this.acntNames[a] = account.getFullAccountName();
+				this.oldDecimals[a] = security.getDecimalPlaces();
+				this.newDecimals[a] = security.getDecimalPlaces();
+
+				for (RescaleTarget target : targets) {
+					if (target.getSecurity() == security) {
+						this.newDecimals[a] = target.getNewDecimalPlaces();
+					}
+				} // end for
+			} else {
+				this.acntNames[a] = "";
+			}
+		} // end for
+		this.acntRanks = rankNames(this.acntNames);
+		this.viewSize = changes == null ? 0 : changes.size();
+		fireTableDataChanged();
+		rebuildView();
+
+	} // end setChanges(StagedChanges, List<RescaleTarget>)
+
+	/**
+	 * @param names
+	 * @return The rank of each name in case-insensitive order
+	 */
+	private static int[] rankNames(String[] names) {
+		Integer[] order = new Integer[names.length];
+
+		for (int i = 0; i < names.length; ++i) {
+			order[i] = i;
+		}
+		Arrays.sort(order, (i1, i2) -> names[i1].compareToIgnoreCase(names[i2]));
+		int[] ranks = new int[names.length];
+
+		for (int i = 0; i < order.length; ++i) {
+			ranks[order[i]] = i;
+		}
+
+		return ranks;
+	} // end rankNames(String[])
+
+	/**
+	 * Sort by a column, reversing the order when already sorted by it.
+	 *
+	 * @param column Model column index
+	 */
+	public void toggleSort(int column) {
+		if (column == this.sortColumn) {
+			this.ascending = !this.ascending;
+		} else {
+			this.sortColumn = column;
+			this.ascending = true;
+		}
+		rebuildView();
+
+	} // end toggleSort(int)
+
+	/**
+	 * @param filter Text an account name or description must contain to show
+	 *               its row, ignoring case; empty to show every row
+	 */
+	public void setFilter(String filter) {
+		this.filter = filter.trim();
+		rebuildView();
+
+	} // end setFilter(String)
+
+	/**
+	 * Build the view index for the current sort and filter in the background,
+	 * then show it. Requests made while one is running are combined into one
+	 * more, and a view that is out of date when built is dropped.
+	 */
+	private void rebuildView() {
+		if (this.changes == null)
+			return;
+		int request = ++this.viewRequest;
+
+		if (this.sortColumn < 0 && this.filter.isEmpty()) {
+			// rows map straight to staged changes
+			this.viewIndex = null;
+			this.viewSize = this.changes.size();
+			fireTableDataChanged();
+
+			return;
+		}
+
+		if (this.rebuilding) {
+			this.rebuildAgain = true;
+
+			return;
+		}
+		this.rebuilding = true;
+		StagedChanges staged = this.changes;
+		String[] names = this.acntNames;
+		String text = this.filter;
+		IndexComparator comparator = comparator(this.sortColumn, this.ascending);
+
+		new SwingWorker<int[], Void>() {
+			protected int[] doInBackground() {
+				int[] index = filterIndexes(staged, names, text);
+
+				if (comparator != null) {
+					sortIndexes(index, comparator);
+				}
+
+				return index;
+			} // end doInBackground()
+
+			protected void done() {
+				StagedChangesTableModel model = StagedChangesTableModel.this;
+				model.rebuilding = false;
+				try {
+					int[] index = get();
+
+					if (model.viewRequest == request) {
+						model.viewIndex = index;
+						model.viewSize = index.length;
+						model.fireTableDataChanged();
+					}
+				} catch (ExecutionException e) {
+					if (model.viewRequest == request) {
+						e.getCause().printStackTrace(System.err);
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+
+				if (model.rebuildAgain) {
+					model.rebuildAgain = false;
+					model.rebuildView();
+				}
+
+			} // end done()
+		}.execute();
+
+	} // end rebuildView()
+
+	/**
+	 * @param staged The staged changes
+	 * @param names The name of each account with staged changes
+	 * @param text Text to look for, or empty for every change
+	 * @return Indexes of the staged changes whose account name or description
+	 *         contains the text, in staged order
+	 */
+	private static int[] filterIndexes(StagedChanges staged, String[] names, String text) {
+		int size = staged.size();
+		int[] index = new int[size];
+		int count = 0;
+
+		if (text.isEmpty()) {
+			for (int i = 0; i < size; ++i) {
+				index[i] = i;
+			}
+
+			return index;
+		}
+
+		for (int a = 0; a < names.length; ++a) {
+			boolean acntMatches = containsIgnoreCase(names[a], text);
+			int end = staged.getAccountEnd(a);
+
+			for (int i = staged.getAccountStart(a); i < end; ++i) {
+				if (acntMatches || containsIgnoreCase(staged.getTxn(i).getDescription(), text)) {
+					index[count++] = i;
+				}
+			} // end for
+		} // end for
+
+		return Arrays.copyOf(index, count);
+	} // end filterIndexes(StagedChanges, String[], String)
+
+	/**
+	 * @param str
+	 * @param text
+	 * @return True when str contains text, ignoring case
+	 */
+	private static boolean containsIgnoreCase(String str, String text) {
+		if (str == null)
+			return false;
+
+		for (int i = str.length() - text.length(); i >= 0; --i) {
+			if (str.regionMatches(true, i, text, 0, text.length()))
+				return true;
+		}
+
+		return false;
+	} // end containsIgnoreCase(String, String)
+
+	/**
+	 * @param column Model column index, or -1 for staged order
+	 * @param ascending
+	 * @return How to order staged changes by the column, or null for staged order
+	 */
+	private IndexComparator comparator(int column, boolean ascending) {
+		StagedChanges staged = this.changes;
+		int[] ranks = this.acntRanks;
+		IndexComparator byColumn;
+
+		switch (column) {
+		case ACCOUNT:
+			byColumn = (i1, i2) -> Integer.compare(ranks[staged.getAccountOf(i1)],
+				ranks[staged.getAccountOf(i2)]);
+			break;
+		case DATE:
+			byColumn = (i1, i2) -> Integer.compare(staged.getTxn(i1).getDateInt(),
+				staged.getTxn(i2).getDateInt());
+			break;
+		case DESCRIPTION:
+			byColumn = (i1, i2) -> compareText(staged.getTxn(i1).getDescription(),
+				staged.getTxn(i2).getDescription());
+			break;
+		case OLD_SHARES:
+			byColumn = sharesComparator(staged, this.oldDecimals, false);
+			break;
+		case NEW_SHARES:
+			byColumn = sharesComparator(staged, this.newDecimals, true);
+			break;
+		default:
+			return null;
+		}
+
+		return ascending ? byColumn : (i1, i2) -> byColumn.compare(i2, i1);
+	} // end comparator(int, boolean)
+
+	/**
+	 * @param staged The staged changes
+	 * @param decimals The decimal places of each account's shares
+	 * @param newShares true to compare shares after the change, false for before
+	 * @return How to order staged changes by their shares
+	 */
+	private static IndexComparator sharesComparator(StagedChanges staged, int[] decimals,
+			boolean newShares) {
+		int commonDecimals = -1;
+
+		for (int a = 0; a < decimals.length; ++a) {
+			if (staged.getAccountStart(a) < staged.getAccountEnd(a)) {
+				if (commonDecimals < 0) {
+					commonDecimals = decimals[a];
+				} else if (decimals[a] != commonDecimals) {
+					// compare securities with different decimal places by amount
+					return (i1, i2) -> BigDecimal.valueOf(shares(staged, i1, newShares),
+						decimals[staged.getAccountOf(i1)]).compareTo(BigDecimal.valueOf(
+							shares(staged, i2, newShares), decimals[staged.getAccountOf(i2)]));
+				}
+			}
+		} // end for
+
+		return (i1, i2) -> Long.compare(shares(staged, i1, newShares),
+			shares(staged, i2, newShares));
+	} // end sharesComparator(StagedChanges, int[], boolean)
+
+	/**
+	 * @param staged The staged changes
+	 * @param index Index of a staged change
+	 * @param newShares true for the shares after the change, false for before
+	 * @return The split's shares, unscaled
+	 */
+	private static long shares(StagedChanges staged, int index, boolean newShares) {
+
+		return newShares ? staged.getNewShares(index) : staged.getTxn(index).getValue();
+	} // end shares(StagedChanges, int, boolean)
+
+	/**
+	 * @param text1
+	 * @param text2
+	 * @return Case-insensitive comparison, with null before any text
+	 */
+	private static int compareText(String text1, String text2) {
+		if (text1 == null || text2 == null)
+			return text1 == null ? (text2 == null ? 0 : -1) : 1;
+
+		return text1.compareToIgnoreCase(text2);
+	} // end compareText(String, String)
+
+	/**
+	 * Stable merge sort of staged change indexes, so equal rows stay in staged
+	 * order.
+	 *
+	 * @param index Staged change indexes to sort in place
+	 * @param comparator
+	 */
+	private static void sortIndexes(int[] index, IndexComparator comparator) {
+		int[] src = index;
+		int[] dest = new int[index.length];
+
+		for (int width = 1; width < index.length; width *= 2) {
+			for (int low = 0; low < index.length; low += 2 * width) {
+				int mid = Math.min(low + width, index.length);
+				int high = Math.min(low + 2 * width, index.length);
+				int i = low;
+				int j = mid;
+
+				for (int k = low; k < high; ++k) {
+					if (i < mid && (j >= high || comparator.compare(src[i], src[j]) <= 0)) {
+						dest[k] = src[i++];
+					} else {
+						dest[k] = src[j++];
+					}
+				} // end for
+			} // end for
+			int[] swap = src;
+			src = dest;
+			dest = swap;
+		} // end for
+
+		if (src != index) {
+			System.arraycopy(src, 0, index, 0, index.length);
+		}
+
+	} // end sortIndexes(int[], IndexComparator)
+
+	/**
+	 * @param index Index of a staged change
+	 * @return The split's shares before the change
+	 */
+	private BigDecimal getOldShares(int index) {
+
+		return BigDecimal.valueOf(this.changes.getTxn(index).getValue(),
+			this.oldDecimals[this.changes.getAccountOf(index)]);
+	} // end getOldShares(int)
+
+	/**
+	 * @param index Index of a staged change
+	 * @return The split's shares after the change
+	 */
+	private BigDecimal getNewShares(int index) {
+
+		return BigDecimal.valueOf(this.changes.getNewShares(index),
+			this.newDecimals[this.changes.getAccountOf(index)]);
+	} // end getNewShares(int)
+
+	public int getRowCount() {
+
+		return this.viewSize;
+	} // end getRowCount()
+
+	public int getColumnCount() {
+
+		return COLUMN_KEYS.length;
+	} // end getColumnCount()
+
+	public String getColumnName(int column) {
+		String name = msgBundle.getString("StagedChangesTableModel.column." + COLUMN_KEYS[column]);
+
+		return column != this.sortColumn ? name : name + (this.ascending ? " \u25B2" : " \u25BC");
+	} // end getColumnName(int)
+
+	public Class<?> getColumnClass(int column) {
+
+		return COLUMN_CLASSES[column];
+	} // end getColumnClass(int)
+
+	public Object getValueAt(int row, int column) {
+		int index = this.viewIndex == null ? row : this.viewIndex[row];
+		SplitTxn sTxn = this.changes.getTxn(index);
+
+		switch (column) {
+		case ACCOUNT:
+			return this.acntNames[this.changes.getAccountOf(index)];
+		case DATE:
+			return MdUtil.convDateIntToLocal(sTxn.getDateInt()).format(dateFmt);
+		case DESCRIPTION:
+			return sTxn.getDescription();
+		case OLD_SHARES:
+			return getOldShares(index);
+		default:
+			return getNewShares(index);
+		}
+	} // end getValueAt(int, int)
+
+} // end class StagedChangesTableModel
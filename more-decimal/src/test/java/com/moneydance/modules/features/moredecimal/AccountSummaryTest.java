@@ -0,0 +1,124 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.moneydance.modules.features.moredecimal;
+
+import static com.moneydance.modules.features.moredecimal.FixedPointScaler.MAX_PLACES;
+import static com.moneydance.modules.features.moredecimal.FixedPointScaler.RESCALE_OK;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that an AccountSummary only skips checks that checking each split
+ * would pass: share values of splits alone, balances of every transaction.
+ */
+public class AccountSummaryTest {
+	// the most places moved in either direction, past what a long can hold
+	private static final int PLACES_TESTED = MAX_PLACES + 3;
+
+	/**
+	 * @param dates
+	 * @param values
+	 * @param isSplit
+	 * @param startBalance
+	 */
+	private static void assertAgreesWithSplitChecks(int[] dates, long[] values,
+			boolean[] isSplit, long startBalance) {
+		AccountSummary summary = new AccountSummary(dates, values, isSplit, values.length,
+			startBalance);
+		RunningBalanceValidator balances = new RunningBalanceValidator(dates, values,
+			values.length, startBalance);
+
+		for (int places = -PLACES_TESTED; places <= PLACES_TESTED; ++places) {
+			boolean valuesFit = true;
+			boolean balancesFit = true;
+
+			for (int i = 0; i < values.length; ++i) {
+				if (isSplit[i]) {
+					valuesFit &= FixedPointScaler.checkRescale(values[i], places) == RESCALE_OK;
+					balancesFit &= balances.checkBalance(dates[i], places) == RESCALE_OK;
+				}
+			} // end for
+			// share values are summarized exactly; balances only conservatively
+			assertEquals(valuesFit, summary.valuesFit(places), "values moved " + places);
+
+			if (summary.balancesFit(places)) {
+				assertTrue(balancesFit, "balances moved " + places);
+			}
+		} // end for
+
+	} // end assertAgreesWithSplitChecks(int[], long[], boolean[], long)
+
+	@Test
+	public void otherTransactionsAreNotShareValues() {
+		int[] dates = {20260101, 20260102, 20260103};
+		long[] values = {1_000, Long.MAX_VALUE / 10, 3_000};
+		boolean[] isSplit = {true, false, true};
+		AccountSummary summary = new AccountSummary(dates, values, isSplit, 3, 0);
+
+		assertEquals(2, summary.getNumTxns());
+		assertEquals(3_000, summary.getMaxAbsValue());
+		assertTrue(summary.valuesFit(2));
+		assertTrue(summary.valuesFit(-3));
+		// but it still counts in the balances after it
+		assertFalse(summary.balancesFit(2));
+		assertFalse(summary.balancesFit(-2));
+		assertEquals(1, summary.getMinTrailingZeros());
+		assertAgreesWithSplitChecks(dates, values, isSplit, 0);
+
+	} // end otherTransactionsAreNotShareValues()
+
+	@Test
+	public void addedSplitsMatchNewSummary() {
+		int[] dates = {20260101, 20260105, 20260105, 20260110};
+		long[] values = {5_000, -2_000, 70_000, 100};
+		AccountSummary summary = new AccountSummary(dates, values, null, 2, 300);
+
+		assertFalse(summary.addTxn(20260104, values[2]));
+		assertTrue(summary.addTxn(dates[2], values[2]));
+		assertTrue(summary.addTxn(dates[3], values[3]));
+		AccountSummary rebuilt = new AccountSummary(dates, values, null, 4, 300);
+
+		assertEquals(rebuilt.getNumTxns(), summary.getNumTxns());
+		assertEquals(rebuilt.getMaxAbsValue(), summary.getMaxAbsValue());
+		assertEquals(rebuilt.getMaxAbsBalance(), summary.getMaxAbsBalance());
+		assertEquals(rebuilt.getMinTrailingZeros(), summary.getMinTrailingZeros());
+
+	} // end addedSplitsMatchNewSummary()
+
+	@Test
+	public void randomAccountsAgreeWithSplitChecks() {
+		Random random = new Random(20261018);
+
+		for (int account = 0; account < 50; ++account) {
+			int numTxns = 1 + random.nextInt(200);
+			int[] dates = new int[numTxns];
+			long[] values = new long[numTxns];
+			boolean[] isSplit = new boolean[numTxns];
+			long scale = FixedPointScaler.powerOfTen(random.nextInt(6));
+			long big = Long.MAX_VALUE / FixedPointScaler.powerOfTen(1 + random.nextInt(MAX_PLACES));
+
+			for (int i = 0; i < numTxns; ++i) {
+				dates[i] = 20260000 + random.nextInt(numTxns);
+				isSplit[i] = random.nextInt(20) != 0;
+				values[i] = (random.nextInt(2_000_000) - 1_000_000) * scale;
+
+				if (random.nextInt(50) == 0) {
+					// near the limit for some number of places
+					values[i] = random.nextBoolean() ? big : -big;
+				} else if (random.nextInt(50) == 0) {
+					// an odd value that needs rounding in a left move
+					values[i] += 1;
+				}
+			} // end for
+			assertAgreesWithSplitChecks(dates, values, isSplit, random.nextInt(1_000) * scale);
+		} // end for
+
+	} // end randomAccountsAgreeWithSplitChecks()
+
+} // end class AccountSummaryTest
@@ -0,0 +1,86 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.moneydance.modules.features.moredecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks how CommitJournal.findInterrupted treats the journal files it finds.
+ * Journals with entries need splits, which can't be built outside Moneydance,
+ * so these journals are just headers with nothing in them.
+ */
+public class CommitJournalTest {
+	@TempDir
+	Path folder;
+
+	/**
+	 * @param name Journal file name, after the common prefix
+	 * @param state The journal state to write
+	 * @return The journal file
+	 */
+	private Path writeJournal(String name, int state) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(32);
+		header.putInt(0x4D44434A); // magic
+		header.putInt(1); // version
+		header.putInt(state);
+		header.putInt(0); // targets
+		header.putInt(0); // parents
+		header.putInt(0); // entries
+		header.putInt(32); // entries offset
+		header.putInt(0); // committed
+
+		return Files.write(this.folder.resolve("moredecimal-commit-" + name + ".mdj"),
+			header.array());
+	} // end writeJournal(String, int)
+
+	@Test
+	public void finishedJournalsAreDeleted() throws IOException {
+		Path done = writeJournal("1", CommitJournal.STATE_DONE);
+		Path writing = writeJournal("2", CommitJournal.STATE_WRITING);
+
+		assertNull(CommitJournal.findInterrupted(this.folder));
+		assertFalse(Files.exists(done));
+		assertFalse(Files.exists(writing));
+
+	} // end finishedJournalsAreDeleted()
+
+	@Test
+	public void committingJournalIsFound() throws IOException {
+		writeJournal("1", CommitJournal.STATE_DONE);
+		writeJournal("2", CommitJournal.STATE_COMMITTING);
+		CommitJournal journal = CommitJournal.findInterrupted(this.folder);
+
+		assertNotNull(journal);
+		assertEquals(CommitJournal.STATE_COMMITTING, journal.getState());
+		assertEquals(0, journal.getNumEntries());
+		journal.finish();
+
+		// marked done, so never found again even where it couldn't be deleted yet
+		assertNull(CommitJournal.findInterrupted(this.folder));
+
+	} // end committingJournalIsFound()
+
+	@Test
+	public void otherFilesAreLeftAlone() throws IOException {
+		Path truncated = Files.write(this.folder.resolve("moredecimal-commit-1.mdj"),
+			new byte[] {1, 2, 3});
+
+		assertNull(CommitJournal.findInterrupted(this.folder));
+		assertTrue(Files.exists(truncated));
+
+	} // end otherFilesAreLeftAlone()
+
+} // end class CommitJournalTest
@@ -0,0 +1,118 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.moneydance.modules.features.moredecimal;
+
+import static com.moneydance.modules.features.moredecimal.FixedPointScaler.MAX_PLACES;
+import static com.moneydance.modules.features.moredecimal.FixedPointScaler.RESCALE_OK;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks FixedPointScaler against BigDecimal.movePointRight followed by
+ * longValueExact, which it replaces.
+ */
+public class FixedPointScalerTest {
+	// the most places moved in either direction, past what a long can hold
+	private static final int PLACES_TESTED = MAX_PLACES + 3;
+
+	/**
+	 * @return Values at and around the edges where rescaling stops fitting
+	 */
+	private static List<Long> edgeValues() {
+		List<Long> values = new ArrayList<>();
+		values.add(0L);
+		values.add(1L);
+		values.add(-1L);
+		values.add(Long.MAX_VALUE);
+		values.add(Long.MIN_VALUE);
+		values.add(Long.MAX_VALUE - 1);
+		values.add(Long.MIN_VALUE + 1);
+
+		for (int p = 1; p <= MAX_PLACES; ++p) {
+			long power = FixedPointScaler.powerOfTen(p);
+
+			for (long edge : new long[] {Long.MAX_VALUE / power, Long.MIN_VALUE / power,
+					power, -power, 7 * power}) {
+				values.add(edge);
+				values.add(edge + 1);
+				values.add(edge - 1);
+			} // end for
+		} // end for
+
+		return values;
+	} // end edgeValues()
+
+	/**
+	 * @param value
+	 * @param rightMovePlaces
+	 */
+	private static void assertSameAsBigDecimal(long value, int rightMovePlaces) {
+		String context = value + " moved " + rightMovePlaces + " places";
+		int result = FixedPointScaler.checkRescale(value, rightMovePlaces);
+		try {
+			long expected = BigDecimal.valueOf(value).movePointRight(rightMovePlaces)
+				.longValueExact();
+			assertEquals(RESCALE_OK, result, context);
+			assertEquals(expected, FixedPointScaler.rescale(value, rightMovePlaces), context);
+		} catch (ArithmeticException e) {
+			assertEquals(e.getMessage(), FixedPointScaler.describe(result), context);
+		}
+
+	} // end assertSameAsBigDecimal(long, int)
+
+	@Test
+	public void edgeValuesMatchBigDecimal() {
+		for (long value : edgeValues()) {
+			for (int places = -PLACES_TESTED; places <= PLACES_TESTED; ++places) {
+				assertSameAsBigDecimal(value, places);
+			}
+		} // end for
+
+	} // end edgeValuesMatchBigDecimal()
+
+	@Test
+	public void randomValuesMatchBigDecimal() {
+		Random random = new Random(20261018);
+
+		for (int i = 0; i < 100_000; ++i) {
+			// spread the magnitudes across all the digit counts a long can have
+			long value = random.nextLong() >> random.nextInt(64);
+			assertSameAsBigDecimal(value, random.nextInt(2 * PLACES_TESTED + 1) - PLACES_TESTED);
+		} // end for
+
+	} // end randomValuesMatchBigDecimal()
+
+	@Test
+	public void leftMovesNeedExactMultiples() {
+		assertEquals(RESCALE_OK, FixedPointScaler.checkRescale(-1_200, -2));
+		assertEquals(-12, FixedPointScaler.rescale(-1_200, -2));
+		assertEquals(FixedPointScaler.RESCALE_ROUNDING, FixedPointScaler.checkRescale(-1_201, -2));
+		assertEquals(FixedPointScaler.RESCALE_ROUNDING, FixedPointScaler.checkRescale(5, -1));
+		assertEquals(FixedPointScaler.RESCALE_ROUNDING,
+			FixedPointScaler.checkRescale(Long.MIN_VALUE, -MAX_PLACES - 1));
+
+	} // end leftMovesNeedExactMultiples()
+
+	@Test
+	public void maxRightMovePlacesMatchesBigDecimal() {
+		for (long value : edgeValues()) {
+			long maxAbs = FixedPointScaler.magnitude(value);
+			int expected = 0;
+
+			while (expected < MAX_PLACES && BigDecimal.valueOf(maxAbs).movePointRight(expected + 1)
+					.compareTo(BigDecimal.valueOf(Long.MAX_VALUE)) <= 0) {
+				++expected;
+			}
+			assertEquals(expected, FixedPointScaler.maxRightMovePlaces(maxAbs), "magnitude " + maxAbs);
+		} // end for
+
+	} // end maxRightMovePlacesMatchesBigDecimal()
+
+} // end class FixedPointScalerTest
@@ -0,0 +1,151 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.moneydance.modules.features.moredecimal;
+
+import static com.moneydance.modules.features.moredecimal.FixedPointScaler.MAX_PLACES;
+import static com.moneydance.modules.features.moredecimal.FixedPointScaler.RESCALE_OK;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the column scans of SplitColumns against checking each split in
+ * order with FixedPointScaler.
+ */
+public class SplitColumnsTest {
+	// the most places moved in either direction, past what a long can hold
+	private static final int PLACES_TESTED = MAX_PLACES + 3;
+
+	/**
+	 * @param dates
+	 * @param values
+	 * @param startBalance
+	 * @return The share balance at the end of each split's date
+	 */
+	private static long[] dayEndBalances(int[] dates, long[] values, long startBalance) {
+		long[] balances = new long[values.length];
+
+		for (int i = 0; i < values.length; ++i) {
+			balances[i] = startBalance;
+
+			for (int j = 0; j < values.length; ++j) {
+				if (dates[j] <= dates[i]) {
+					balances[i] += values[j];
+				}
+			} // end for
+		} // end for
+
+		return balances;
+	} // end dayEndBalances(int[], long[], long)
+
+	/**
+	 * @param values
+	 * @param balances
+	 * @param checkShares
+	 * @param checkBalances
+	 * @param rightMovePlaces
+	 * @return Index of the first split that won't fit, checking each in order
+	 */
+	private static int firstUnfitInOrder(long[] values, long[] balances, boolean checkShares,
+			boolean checkBalances, int rightMovePlaces) {
+		for (int i = 0; i < values.length; ++i) {
+			if (checkShares && FixedPointScaler.checkRescale(values[i], rightMovePlaces) != RESCALE_OK)
+				return i;
+
+			if (checkBalances
+					&& FixedPointScaler.checkRescale(balances[i], rightMovePlaces) != RESCALE_OK)
+				return i;
+		} // end for
+
+		return -1;
+	} // end firstUnfitInOrder(long[], long[], boolean, boolean, int)
+
+	/**
+	 * @param dates
+	 * @param values
+	 * @param startBalance
+	 */
+	private static void assertSameAsInOrder(int[] dates, long[] values, long startBalance) {
+		SplitColumns columns = new SplitColumns();
+		columns.load(dates, values, values.length);
+		columns.computeBalances(startBalance);
+		long[] balances = dayEndBalances(dates, values, startBalance);
+
+		for (int i = 0; i < values.length; ++i) {
+			assertEquals(balances[i], columns.getDayEndBalance(i), "balance " + i);
+		}
+
+		for (int places = -PLACES_TESTED; places <= PLACES_TESTED; ++places) {
+			for (int check = 1; check <= 3; ++check) {
+				boolean checkShares = (check & 1) != 0;
+				boolean checkBalances = (check & 2) != 0;
+
+				assertEquals(firstUnfitInOrder(values, balances, checkShares, checkBalances, places),
+					columns.findFirstUnfit(checkShares, checkBalances, places),
+					"moved " + places + " places, check " + check);
+			} // end for
+		} // end for
+
+	} // end assertSameAsInOrder(int[], long[], long)
+
+	@Test
+	public void edgeValuesMatchInOrderChecks() {
+		long[] values = {
+			0, 1, -1, Long.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE / 1_000,
+			Long.MAX_VALUE / 1_000 + 1, Long.MIN_VALUE / 1_000 - 1, 1_000, -7_000_000
+		};
+		int[] dates = new int[values.length];
+
+		// one split per date, so each day-end balance is just that split's value
+		for (int i = 0; i < values.length; ++i) {
+			long[] single = {values[i]};
+			assertSameAsInOrder(new int[] {20260101}, single, 0);
+			dates[i] = 20260101 + i;
+		} // end for
+		assertSameAsInOrder(dates, values, 0);
+
+		for (int p = 1; p <= MAX_PLACES; ++p) {
+			long power = FixedPointScaler.powerOfTen(p);
+			long[] edges = {
+				Long.MAX_VALUE / power, Long.MAX_VALUE / power + 1,
+				Long.MIN_VALUE / power, Long.MIN_VALUE / power - 1, power, power + 1, -power
+			};
+
+			for (long edge : edges) {
+				assertSameAsInOrder(new int[] {20260101}, new long[] {edge}, 0);
+			}
+		} // end for
+
+	} // end edgeValuesMatchInOrderChecks()
+
+	@Test
+	public void randomAccountsMatchInOrderChecks() {
+		Random random = new Random(20261018);
+
+		for (int account = 0; account < 20; ++account) {
+			// span several blocks so block rescans are exercised
+			int numTxns = 1 + random.nextInt(3_000);
+			int[] dates = new int[numTxns];
+			long[] values = new long[numTxns];
+			int zeros = random.nextInt(6);
+			long scale = FixedPointScaler.powerOfTen(zeros);
+
+			for (int i = 0; i < numTxns; ++i) {
+				// mostly in date order, with some out of order and many sharing a date
+				dates[i] = 20260000 + (random.nextInt(10) == 0 ? random.nextInt(numTxns) : i / 3);
+				values[i] = (random.nextInt(2_000_000) - 1_000_000) * scale;
+
+				if (random.nextInt(500) == 0) {
+					// an odd value that needs rounding in a left move
+					values[i] += 1;
+				}
+			} // end for
+			assertSameAsInOrder(dates, values, random.nextInt(1_000) * scale);
+		} // end for
+
+	} // end randomAccountsMatchInOrderChecks()
+
+} // end class SplitColumnsTest
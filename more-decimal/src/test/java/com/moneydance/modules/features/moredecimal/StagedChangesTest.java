@@ -0,0 +1,94 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.moneydance.modules.features.moredecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks regrouping staged changes and finding the accounts they touch. Splits
+ * can't be built outside Moneydance, so each change's share value stands in
+ * for its account and parent: account * 1000 + parent.
+ */
+public class StagedChangesTest {
+
+	/**
+	 * @param parentsByAccount The parent of each change, by account
+	 * @return Staged changes with one account range per account
+	 */
+	private static StagedChanges stage(int[][] parentsByAccount) {
+		StagedChanges changes = new StagedChanges();
+
+		for (int a = 0; a < parentsByAccount.length; ++a) {
+			for (int parent : parentsByAccount[a]) {
+				changes.add(null, a * 1000L + parent);
+			}
+			changes.endAccount();
+		} // end for
+
+		return changes;
+	} // end stage(int[][])
+
+	/**
+	 * @param changes
+	 * @return The parent of each staged change, in order
+	 */
+	private static List<Long> parents(StagedChanges changes) {
+		List<Long> parents = new ArrayList<>();
+
+		for (int i = 0; i < changes.size(); ++i) {
+			parents.add(changes.getNewShares(i) % 1000);
+		}
+
+		return parents;
+	} // end parents(StagedChanges)
+
+	@Test
+	public void groupingKeepsFirstStagedOrder() {
+		StagedChanges changes = stage(new int[][] {{1, 2, 3}, {2, 4}, {1, 3, 5}});
+		changes.groupBy(i -> changes.getNewShares(i) % 1000);
+
+		assertEquals(Arrays.asList(1L, 1L, 2L, 2L, 3L, 3L, 4L, 5L), parents(changes));
+		// within each parent, the changes stay in the order staged
+		assertEquals(2000 + 1, changes.getNewShares(1));
+		assertEquals(1000 + 2, changes.getNewShares(3));
+		assertEquals(0, changes.getAccountCount());
+
+	} // end groupingKeepsFirstStagedOrder()
+
+	@Test
+	public void eachAccountFoundOnceAfterGrouping() {
+		StagedChanges changes = stage(new int[][] {{1, 2, 3}, {2, 4}, {1, 3, 5}, {}, {6}});
+		changes.groupBy(i -> changes.getNewShares(i) % 1000);
+
+		// the parents interleave the accounts, but each is recalculated just once
+		assertEquals(Arrays.asList(0L, 2L, 1L, 4L),
+			new ArrayList<>(changes.distinctKeys(0, i -> changes.getNewShares(i) / 1000)));
+		// after committing the first six changes, only the accounts left remain
+		assertEquals(Arrays.asList(1L, 2L, 4L),
+			new ArrayList<>(changes.distinctKeys(6, i -> changes.getNewShares(i) / 1000)));
+		assertEquals(0, changes.distinctKeys(changes.size(), i -> 0L).size());
+
+	} // end eachAccountFoundOnceAfterGrouping()
+
+	@Test
+	public void accountOfEachChange() {
+		StagedChanges changes = stage(new int[][] {{1, 2, 3}, {}, {2, 4}, {7}});
+
+		for (int i = 0; i < changes.size(); ++i) {
+			int acntIndex = changes.getAccountOf(i);
+
+			assertEquals(changes.getNewShares(i) / 1000, acntIndex);
+			assertEquals(true, changes.getAccountStart(acntIndex) <= i
+				&& i < changes.getAccountEnd(acntIndex), "change " + i);
+		} // end for
+
+	} // end accountOfEachChange()
+
+} // end class StagedChangesTest